@@ -14,6 +14,10 @@ version = "0.1.0"
 
 dependencies {
     "implementation"("com.google.guava:guava:27.0-jre")
+    "implementation"("org.ow2.asm:asm:9.8")
+
+    // Provided by the test runtime classpath of the forked JVMs running the launcher
+    "compileOnly"("junit:junit:4.12")
 
     "testImplementation"(gradleTestKit())
     "testImplementation"("junit:junit:4.12")
@@ -36,6 +40,10 @@ configure<GradlePluginDevelopmentExtension> {
 
 tasks {
     jacocoTestCoverageVerification {
+        // Launcher classes only ever run inside forked JVMs, out of reach of the coverage agent
+        classDirectories.setFrom(sourceSets["main"].output.classesDirs.asFileTree.matching {
+            exclude("**/launcher/**")
+        })
         violationRules {
             rule {
                 limit {
@@ -0,0 +1,187 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.specs.Specs;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.util.PatternSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Base class for tasks which run the tests of a test task in forks of their own, choosing the trips themselves.
+ */
+public abstract class AbstractTravelAgentTask extends DefaultTask {
+
+    /**
+     * Lazy property for the test task whose tests are run.
+     */
+    private final Property<Test> testTask;
+
+    /**
+     * Lazy list of the names of the test classes to run.
+     */
+    private final ListProperty<String> testClasses;
+
+    /**
+     * Lazy property for the directory reports are written to.
+     */
+    private final DirectoryProperty reportDirectory;
+
+    /**
+     * Lazy property for whether to carry on with the build when problems are found.
+     */
+    private final Property<Boolean> ignoreFailures;
+
+
+    /**
+     * Constructs the task.
+     */
+    protected AbstractTravelAgentTask() {
+        ObjectFactory objectFactory = getProject().getObjects();
+
+        testTask = objectFactory.property(Test.class);
+
+        testClasses = objectFactory.listProperty(String.class);
+        // Not mapped from the test task property, which would make the test task a dependency.
+        testClasses.set(getProject().provider(() -> findTestClasses(testTask.get())));
+
+        reportDirectory = objectFactory.directoryProperty();
+        reportDirectory.set(getProject().getLayout().getBuildDirectory().dir("reports/travelAgent/" + getName()));
+
+        ignoreFailures = objectFactory.property(Boolean.class);
+        ignoreFailures.set(false);
+
+        // Only what the test classpath needs built, for the same reason.
+        dependsOn((Callable<FileCollection>) () -> testTask.get().getClasspath());
+
+        // Every run takes different trips, so there is no such thing as up-to-date.
+        getOutputs().upToDateWhen(Specs.SATISFIES_NONE);
+    }
+
+
+    /**
+     * Finds all top-level classes in the test classes directories of a test task.
+     * Anything which turns out not to be a test is skipped by the forked JVM.
+     *
+     * @param testTask the test task.
+     * @return the class names.
+     */
+    private static List<String> findTestClasses(Test testTask) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        testTask.getTestClassesDirs().getAsFileTree()
+                .matching(new PatternSet().include("**/*.class").exclude("**/*$*.class"))
+                .visit(details -> {
+                    if (!details.isDirectory()) {
+                        String path = details.getRelativePath().getPathString();
+                        builder.add(path.substring(0, path.length() - ".class".length()).replace('/', '.'));
+                    }
+                });
+        return builder.build();
+    }
+
+    /**
+     * Gets the test task whose tests are run.
+     *
+     * @return the test task.
+     */
+    @Internal
+    public Property<Test> getTestTask() {
+        return testTask;
+    }
+
+    /**
+     * Gets the names of the test classes to run. Defaults to all classes found in the test task's
+     * test classes directories.
+     *
+     * @return the test class names.
+     */
+    @Input
+    public ListProperty<String> getTestClasses() {
+        return testClasses;
+    }
+
+    /**
+     * Gets the directory reports are written to.
+     *
+     * @return the report directory.
+     */
+    @OutputDirectory
+    public DirectoryProperty getReportDirectory() {
+        return reportDirectory;
+    }
+
+    /**
+     * Gets whether to carry on with the build when problems are found.
+     *
+     * @return {@code true} to only report problems, {@code false} to also fail the build.
+     */
+    @Input
+    public Property<Boolean> getIgnoreFailures() {
+        return ignoreFailures;
+    }
+
+    /**
+     * Gets the travel agent extension of the test task, for the trips it finds acceptable.
+     *
+     * @return the extension.
+     */
+    @Internal
+    TravelAgentTaskExtension getTestTaskExtension() {
+        return testTask.get().getExtensions().getByType(TravelAgentTaskExtension.class);
+    }
+
+    /**
+     * Creates a fork to run the tests in.
+     *
+     * @param trip the trip for the fork to take.
+     * @param name a name for the fork, unique within this task.
+     * @return the fork.
+     */
+    TripFork createFork(Trip trip, String name) {
+        return new TripFork(testTask.get(), trip, new File(getTemporaryDir(), name));
+    }
+
+    /**
+     * Writes a report into the report directory.
+     *
+     * @param fileName the name of the report file.
+     * @param lines the lines of the report.
+     * @return the report file.
+     * @throws IOException if an error occurs writing the file.
+     */
+    File writeReport(String fileName, List<String> lines) throws IOException {
+        File file = reportDirectory.file(fileName).get().getAsFile();
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Reports that problems were found, failing the build unless failures are being ignored.
+     *
+     * @param message the message describing the problems.
+     * @param report the report file with the details.
+     */
+    void reportFailure(String message, File report) {
+        String fullMessage = message + " See the report at: " + report.toURI();
+        if (ignoreFailures.get()) {
+            getLogger().warn(fullMessage);
+        } else {
+            throw new GradleException(fullMessage);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares one output of the baseline trip with the same output of the target trip.
+ *
+ * Outputs can be large, so both files are streamed through side by side one chunk at a time, hashing them
+ * and counting the chunks which differ, without ever holding more than one chunk of each in memory.
+ * Chunks are only counted when the outputs are the same size, as once a difference changes the length,
+ * as locale differences often do, every chunk after it is out of step and would count as different.
+ */
+final class OutputComparison {
+
+    /**
+     * How many bytes to show either side of the first difference.
+     */
+    private static final int EXCERPT_CONTEXT = 30;
+
+    private final String name;
+    private final File baseline;
+    private final File target;
+    private final String baselineHash;
+    private final String targetHash;
+    private final long chunkCount;
+    private final long differingChunkCount;
+    private final long firstDifference;
+    private final String baselineExcerpt;
+    private final String targetExcerpt;
+
+    private OutputComparison(String name, File baseline, File target, String baselineHash, String targetHash,
+                             long chunkCount, long differingChunkCount, long firstDifference,
+                             String baselineExcerpt, String targetExcerpt) {
+        this.name = name;
+        this.baseline = baseline;
+        this.target = target;
+        this.baselineHash = baselineHash;
+        this.targetHash = targetHash;
+        this.chunkCount = chunkCount;
+        this.differingChunkCount = differingChunkCount;
+        this.firstDifference = firstDifference;
+        this.baselineExcerpt = baselineExcerpt;
+        this.targetExcerpt = targetExcerpt;
+    }
+
+    /**
+     * Compares two outputs.
+     *
+     * @param name the name of the output, for reporting.
+     * @param baseline the output of the baseline trip, which may not exist.
+     * @param target the output of the target trip, which may not exist.
+     * @param chunkSize the number of bytes to compare at a time.
+     * @return the comparison.
+     * @throws IOException if an error occurs reading the outputs.
+     */
+    static OutputComparison compare(String name, File baseline, File target, int chunkSize) throws IOException {
+        if (!baseline.isFile() || !target.isFile()) {
+            return new OutputComparison(name, baseline, target, "", "", 0, 0, -1, "", "");
+        }
+
+        boolean sameSize = baseline.length() == target.length();
+        Hasher baselineHasher = Hashing.sha256().newHasher();
+        Hasher targetHasher = Hashing.sha256().newHasher();
+        byte[] baselineChunk = new byte[chunkSize];
+        byte[] targetChunk = new byte[chunkSize];
+        long chunkCount = 0;
+        long differingChunkCount = 0;
+        long firstDifference = -1;
+        String baselineExcerpt = "";
+        String targetExcerpt = "";
+
+        try (InputStream baselineStream = new BufferedInputStream(Files.newInputStream(baseline.toPath()));
+             InputStream targetStream = new BufferedInputStream(Files.newInputStream(target.toPath()))) {
+            long offset = 0;
+            while (true) {
+                int baselineCount = ByteStreams.read(baselineStream, baselineChunk, 0, chunkSize);
+                int targetCount = ByteStreams.read(targetStream, targetChunk, 0, chunkSize);
+                if (baselineCount == 0 && targetCount == 0) {
+                    break;
+                }
+                chunkCount++;
+                baselineHasher.putBytes(baselineChunk, 0, baselineCount);
+                targetHasher.putBytes(targetChunk, 0, targetCount);
+
+                if (sameSize || firstDifference < 0) {
+                    int mismatch = mismatch(baselineChunk, baselineCount, targetChunk, targetCount);
+                    if (mismatch >= 0) {
+                        differingChunkCount++;
+                        if (firstDifference < 0) {
+                            firstDifference = offset + mismatch;
+                            baselineExcerpt = excerpt(baselineChunk, baselineCount, mismatch);
+                            targetExcerpt = excerpt(targetChunk, targetCount, mismatch);
+                        }
+                    }
+                }
+                offset += Math.max(baselineCount, targetCount);
+            }
+        }
+
+        return new OutputComparison(name, baseline, target,
+                baselineHasher.hash().toString(), targetHasher.hash().toString(),
+                chunkCount, differingChunkCount, firstDifference, baselineExcerpt, targetExcerpt);
+    }
+
+    /**
+     * Finds the first index at which two chunks differ.
+     *
+     * @return the index, or {@code -1} if the chunks are the same.
+     */
+    private static int mismatch(byte[] chunk1, int count1, byte[] chunk2, int count2) {
+        int common = Math.min(count1, count2);
+        for (int i = 0; i < common; i++) {
+            if (chunk1[i] != chunk2[i]) {
+                return i;
+            }
+        }
+        return count1 == count2 ? -1 : common;
+    }
+
+    /**
+     * Describes the bytes around a position in a chunk, as text since that's what most outputs are.
+     * Differences right at the edge of a chunk get less context, which is a fair trade for not buffering more.
+     */
+    private static String excerpt(byte[] chunk, int count, int position) {
+        int start = Math.max(0, position - EXCERPT_CONTEXT);
+        int end = Math.min(count, position + EXCERPT_CONTEXT);
+        String text = new String(Arrays.copyOfRange(chunk, start, end), StandardCharsets.UTF_8);
+        return '"' + text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t") + '"';
+    }
+
+    /**
+     * Gets whether the outputs differ, including one of them being missing.
+     *
+     * @return {@code true} if the outputs differ, {@code false} if they are the same or neither exists.
+     */
+    boolean isDifferent() {
+        return baseline.isFile() != target.isFile() || firstDifference >= 0;
+    }
+
+    /**
+     * Describes the difference for the report.
+     *
+     * @return the lines describing the difference.
+     */
+    List<String> describe() {
+        if (!target.isFile()) {
+            return ImmutableList.of(name + ": only written by the baseline trip");
+        } else if (!baseline.isFile()) {
+            return ImmutableList.of(name + ": only written by the target trip");
+        }
+        String summary = baseline.length() == target.length()
+                ? differingChunkCount + " of " + chunkCount + " chunks differ, first difference at byte " + firstDifference
+                : "first difference at byte " + firstDifference + ", after which the outputs are out of step";
+        return ImmutableList.of(
+                name + ": " + summary,
+                "    baseline: " + baselineExcerpt,
+                "    target:   " + targetExcerpt,
+                "    baseline SHA-256: " + baselineHash + " (" + baseline.length() + " bytes)",
+                "    target SHA-256:   " + targetHash + " (" + target.length() + " bytes)");
+    }
+}
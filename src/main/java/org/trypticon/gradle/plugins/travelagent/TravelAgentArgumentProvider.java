@@ -52,12 +52,24 @@ class TravelAgentArgumentProvider implements CommandLineArgumentProvider, Named
             String timeZone = trip.getTimeZone();
             String displayTimeZone = TimeZone.getTimeZone(timeZone).getDisplayName(Locale.ROOT);
 
+            // Predefined trips never have a script or extensions, but custom and explored trips can.
+            String localeLine = trip.getScript().isEmpty() && trip.getExtensions().isEmpty()
+                    ? "" : "    Locale:     " + trip.toLanguageTag() + "\n";
+            String localeProviders = trip.getLocaleProviders();
+            String localeProvidersLine = localeProviders.isEmpty()
+                    ? "" : "    Providers:  " + localeProviders + "\n";
+            String localeProvidersParameter = localeProviders.isEmpty()
+                    ? "" : " -Ptravelagent.localeproviders=" + localeProviders;
+
             logger.lifecycle("Taking a trip to:\n" +
                             "    Language:   {} ({})\n" +
                             "    Country:    {} ({})\n" +
+                            localeLine +
                             "    Time Zone:  {} ({})\n" +
+                            localeProvidersLine +
                             "    To reproduce manually:\n" +
-                            "        -Ptravelagent.language={} -Ptravelagent.country={} -Ptravelagent.timezone={}",
+                            "        -Ptravelagent.language={} -Ptravelagent.country={} -Ptravelagent.timezone={}" +
+                            localeProvidersParameter,
                     language, displayLanguage, country, displayCountry, timeZone, displayTimeZone,
                     language, country, timeZone);
         }
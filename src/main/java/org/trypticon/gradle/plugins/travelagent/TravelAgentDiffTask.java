@@ -0,0 +1,343 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Task running the tests once with a baseline trip and once with a target trip, then comparing what they wrote
+ * to standard output and to the designated output directories. Catches locale bugs which never fail an assertion
+ * but change reports, logs and serialised files.
+ */
+public class TravelAgentDiffTask extends AbstractTravelAgentTask {
+
+    /**
+     * Lazy property for the trip whose outputs are taken to be correct.
+     */
+    private final Property<Trip> baselineTrip;
+
+    /**
+     * Lazy property for the trip whose outputs are compared against the baseline.
+     */
+    private final Property<Trip> targetTrip;
+
+    /**
+     * The directories the tests write their outputs to.
+     */
+    private final ConfigurableFileCollection outputDirectories;
+
+    /**
+     * Lazy property for whether to accept output directories outside the build directory.
+     */
+    private final Property<Boolean> allowExternalOutputDirectories;
+
+    /**
+     * Lazy property for whether to compare standard output.
+     */
+    private final Property<Boolean> compareStandardOutput;
+
+    /**
+     * Lazy property for the number of bytes to compare at a time.
+     */
+    private final Property<Integer> chunkSize;
+
+
+    /**
+     * Constructs the task.
+     */
+    public TravelAgentDiffTask() {
+        baselineTrip = getProject().getObjects().property(Trip.class);
+        baselineTrip.set(new Trip("en", "US", "America/Los_Angeles"));
+
+        targetTrip = getProject().getObjects().property(Trip.class);
+
+        outputDirectories = getProject().getObjects().fileCollection();
+
+        allowExternalOutputDirectories = getProject().getObjects().property(Boolean.class);
+        allowExternalOutputDirectories.set(false);
+
+        compareStandardOutput = getProject().getObjects().property(Boolean.class);
+        compareStandardOutput.set(true);
+
+        chunkSize = getProject().getObjects().property(Integer.class);
+        chunkSize.set(64 * 1024);
+    }
+
+
+    /**
+     * Gets the trip whose outputs are taken to be correct. Defaults to US English.
+     *
+     * @return the baseline trip.
+     */
+    @Input
+    public Property<Trip> getBaselineTrip() {
+        return baselineTrip;
+    }
+
+    /**
+     * Gets the trip whose outputs are compared against the baseline.
+     * If not set, one of the trips acceptable to the test task, other than the baseline trip, is chosen at random.
+     *
+     * @return the target trip.
+     */
+    @Input
+    @Optional
+    public Property<Trip> getTargetTrip() {
+        return targetTrip;
+    }
+
+    /**
+     * Gets the directories the tests write their outputs to. Before each run, they are put back the way they
+     * were before the task started, so both runs start from the same files, e.g. golden files. Once the task
+     * is done, they are put back that way for good.
+     *
+     * @return the output directories.
+     */
+    @Internal
+    public ConfigurableFileCollection getOutputDirectories() {
+        return outputDirectories;
+    }
+
+    /**
+     * Gets whether to accept output directories outside the build directory. Their contents are put back
+     * afterwards, but in case the build gets killed midway through, only directories in the build directory
+     * are accepted unless this is set.
+     *
+     * @return {@code true} to accept any output directory, {@code false} to only accept those in the build directory.
+     */
+    @Input
+    public Property<Boolean> getAllowExternalOutputDirectories() {
+        return allowExternalOutputDirectories;
+    }
+
+    /**
+     * Gets whether to compare what the tests write to standard output.
+     *
+     * @return {@code true} to compare standard output, {@code false} to ignore it.
+     */
+    @Input
+    public Property<Boolean> getCompareStandardOutput() {
+        return compareStandardOutput;
+    }
+
+    /**
+     * Gets the number of bytes to compare at a time, which is also the most read into memory at once from each output.
+     * Must be positive.
+     *
+     * @return the chunk size.
+     */
+    @Input
+    public Property<Integer> getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Runs the tests with both trips and compares their outputs.
+     *
+     * @throws Exception if an error occurs.
+     */
+    @TaskAction
+    public void diff() throws Exception {
+        int chunkSize = this.chunkSize.get();
+        if (chunkSize <= 0) {
+            throw new GradleException("Chunk size must be positive, but was " + chunkSize);
+        }
+        Trip baseline = baselineTrip.get();
+        Trip target = targetTrip.isPresent() ? targetTrip.get() : suggestTargetTrip(baseline);
+        List<File> directories = ImmutableList.copyOf(outputDirectories.getFiles());
+        checkOutputDirectories(directories);
+
+        File originalsDirectory = new File(getTemporaryDir(), "originals");
+        getProject().delete(originalsDirectory);
+        for (int i = 0; i < directories.size(); i++) {
+            if (directories.get(i).exists()) {
+                copyDirectory(directories.get(i), new File(originalsDirectory, String.valueOf(i)));
+            }
+        }
+
+        Run baselineRun;
+        Run targetRun;
+        try {
+            baselineRun = run(baseline, "baseline", directories, originalsDirectory);
+            targetRun = run(target, "target", directories, originalsDirectory);
+        } finally {
+            restoreDirectories(directories, originalsDirectory);
+        }
+
+        List<OutputComparison> comparisons = new ArrayList<>();
+        if (compareStandardOutput.get()) {
+            comparisons.add(OutputComparison.compare("Standard output",
+                    baselineRun.getStandardOutputFile(), targetRun.getStandardOutputFile(), chunkSize));
+        }
+        for (int i = 0; i < directories.size(); i++) {
+            Path baselineRoot = baselineRun.getOutputDirectory(i).toPath();
+            Path targetRoot = targetRun.getOutputDirectory(i).toPath();
+            SortedSet<Path> relativePaths = new TreeSet<>();
+            relativePaths.addAll(listFiles(baselineRoot));
+            relativePaths.addAll(listFiles(targetRoot));
+            for (Path relativePath : relativePaths) {
+                String name = getProject().relativePath(new File(directories.get(i), relativePath.toString()));
+                comparisons.add(OutputComparison.compare(name, baselineRoot.resolve(relativePath).toFile(),
+                        targetRoot.resolve(relativePath).toFile(), chunkSize));
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Baseline: " + baseline);
+        lines.add("    JVM arguments: " + String.join(" ", baseline.toCommandLineArguments()));
+        baselineRun.result.getFailures().forEach(failure -> lines.add("    Failed: " + failure));
+        lines.add("Target:   " + target);
+        lines.add("    JVM arguments: " + String.join(" ", target.toCommandLineArguments()));
+        targetRun.result.getFailures().forEach(failure -> lines.add("    Failed: " + failure));
+        long differenceCount = 0;
+        for (OutputComparison comparison : comparisons) {
+            if (comparison.isDifferent()) {
+                differenceCount++;
+                lines.add("");
+                lines.addAll(comparison.describe());
+            }
+        }
+        File report = writeReport("diff.txt", lines);
+
+        getLogger().lifecycle("Compared {} outputs between {} and {}, of which {} differ.",
+                comparisons.size(), baseline, target, differenceCount);
+        if (differenceCount > 0) {
+            reportFailure("Found " + differenceCount + " locale-dependent outputs.", report);
+        }
+    }
+
+    /**
+     * Suggests a target trip from the trips acceptable to the test task, other than the baseline trip,
+     * which would only ever be compared with itself.
+     *
+     * @param baseline the baseline trip.
+     * @return the target trip.
+     */
+    private Trip suggestTargetTrip(Trip baseline) {
+        List<Trip> trips = getTestTaskExtension().getAcceptableTrips().get().stream()
+                .filter(trip -> !trip.toString().equals(baseline.toString()))
+                .collect(ImmutableList.toImmutableList());
+        if (trips.isEmpty()) {
+            throw new GradleException("No acceptable trips to take other than the baseline trip " + baseline);
+        }
+        return trips.get(new SecureRandom().nextInt(trips.size()));
+    }
+
+    /**
+     * Checks that the output directories are somewhere the task can safely replace the contents of.
+     * That rules out anywhere holding the task's own files, including the copies of the original contents.
+     *
+     * @param directories the output directories.
+     */
+    private void checkOutputDirectories(List<File> directories) {
+        Path buildDirectory = getProject().getLayout().getBuildDirectory().get().getAsFile().toPath().normalize();
+        List<Path> taskDirectories = ImmutableList.of(buildDirectory, getTemporaryDir().toPath().normalize(),
+                getReportDirectory().get().getAsFile().toPath().normalize());
+        for (File directory : directories) {
+            Path path = directory.toPath().normalize();
+            for (Path taskDirectory : taskDirectories) {
+                if (taskDirectory.startsWith(path)) {
+                    throw new GradleException("Output directory " + directory + " contains " + taskDirectory +
+                            ". Its contents are replaced while comparing, which would lose the task's own files.");
+                }
+            }
+            if (!allowExternalOutputDirectories.get() && !path.startsWith(buildDirectory)) {
+                throw new GradleException("Output directory " + directory + " is outside the build directory. " +
+                        "Its contents are replaced while comparing, so set allowExternalOutputDirectories " +
+                        "to use it anyway.");
+            }
+        }
+    }
+
+    /**
+     * Runs the tests with a trip, starting from the original contents of the output directories,
+     * then copies what the tests left there aside for comparing.
+     *
+     * @param trip the trip to take.
+     * @param name the name of the run.
+     * @param directories the output directories.
+     * @param originalsDirectory the directory holding the original contents of the output directories.
+     * @return the run.
+     * @throws Exception if an error occurs.
+     */
+    private Run run(Trip trip, String name, List<File> directories, File originalsDirectory) throws Exception {
+        restoreDirectories(directories, originalsDirectory);
+        for (File directory : directories) {
+            Files.createDirectories(directory.toPath());
+        }
+
+        TripFork fork = createFork(trip, name);
+        TripFork.Result result = fork.run(getTestClasses().get());
+
+        File outputsDirectory = new File(fork.getDirectory(), "outputs");
+        getProject().delete(outputsDirectory);
+        Run run = new Run(fork, result, outputsDirectory);
+        for (int i = 0; i < directories.size(); i++) {
+            copyDirectory(directories.get(i), run.getOutputDirectory(i));
+        }
+        return run;
+    }
+
+    /**
+     * Puts the output directories back the way they were before the task started.
+     *
+     * @param directories the output directories.
+     * @param originalsDirectory the directory holding their original contents.
+     */
+    private void restoreDirectories(List<File> directories, File originalsDirectory) {
+        getProject().delete(directories);
+        for (int i = 0; i < directories.size(); i++) {
+            File original = new File(originalsDirectory, String.valueOf(i));
+            if (original.exists()) {
+                copyDirectory(original, directories.get(i));
+            }
+        }
+    }
+
+    private void copyDirectory(File directory, File destination) {
+        getProject().copy(spec -> spec.from(directory).into(destination));
+    }
+
+    private List<Path> listFiles(Path root) {
+        return getProject().fileTree(root).getFiles().stream()
+                .map(file -> root.relativize(file.toPath()))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Holds the results of running the tests with one trip.
+     */
+    private static class Run {
+        private final TripFork fork;
+        private final TripFork.Result result;
+        private final File outputsDirectory;
+
+        Run(TripFork fork, TripFork.Result result, File outputsDirectory) {
+            this.fork = fork;
+            this.result = result;
+            this.outputsDirectory = outputsDirectory;
+        }
+
+        File getStandardOutputFile() {
+            return fork.getStandardOutputFile();
+        }
+
+        File getOutputDirectory(int index) {
+            return new File(outputsDirectory, String.valueOf(index));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Task exploring trips beyond the available ones, adding scripts and Unicode extension keywords
+ * such as {@code -u-nu-arab} and {@code -u-ca-japanese}. Keeps running the tests in parallel forks
+ * until the time budget runs out, then reports which trips failed.
+ */
+public class TravelAgentExploreTask extends AbstractTravelAgentTask {
+
+    /**
+     * Lazy property for the time budget.
+     */
+    private final Property<Duration> budget;
+
+    /**
+     * Lazy property for the maximum number of forks to run at once.
+     */
+    private final Property<Integer> maxParallelForks;
+
+
+    /**
+     * Constructs the task.
+     */
+    public TravelAgentExploreTask() {
+        budget = getProject().getObjects().property(Duration.class);
+        budget.set(Duration.ofMinutes(10));
+
+        maxParallelForks = getProject().getObjects().property(Integer.class);
+        maxParallelForks.set(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+
+    /**
+     * Gets the time budget. Forks still running when it runs out are killed and not counted.
+     *
+     * @return the time budget.
+     */
+    @Input
+    public Property<Duration> getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the maximum number of forks to run at once.
+     *
+     * @return the maximum number of forks.
+     */
+    @Input
+    public Property<Integer> getMaxParallelForks() {
+        return maxParallelForks;
+    }
+
+    /**
+     * Explores trips until the budget runs out or there are no new trips left to take.
+     *
+     * @throws Exception if an error occurs.
+     */
+    @TaskAction
+    public void explore() throws Exception {
+        Instant deadline = Instant.now().plus(budget.get());
+        TravelAgentTaskExtension taskExtension = getTestTaskExtension();
+        TripGenerator generator = new TripGenerator(taskExtension.getAcceptableTrips().get(),
+                taskExtension::isAcceptable);
+        List<String> testClasses = getTestClasses().get();
+        int forkCount = maxParallelForks.get();
+
+        List<TripFork.Result> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(forkCount);
+        try {
+            CompletionService<TripFork.Result> completionService = new ExecutorCompletionService<>(executor);
+            int running = 0;
+            int forkNumber = 0;
+            boolean exhausted = false;
+            while (true) {
+                while (!exhausted && running < forkCount && Instant.now().isBefore(deadline)) {
+                    Trip trip = generator.next();
+                    if (trip == null) {
+                        exhausted = true;
+                    } else {
+                        TripFork fork = createFork(trip, "fork-" + forkNumber++);
+                        completionService.submit(() -> fork.run(testClasses, deadline));
+                        running++;
+                    }
+                }
+                if (running == 0) {
+                    break;
+                }
+                TripFork.Result result = completionService.take().get();
+                running--;
+                getLogger().info("{}: {}", result.getTrip(), result.getOutcome());
+                results.add(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<TripFork.Result> failed = results.stream()
+                .filter(result -> result.getOutcome() == TripFork.Result.Outcome.FAILED)
+                .collect(ImmutableList.toImmutableList());
+        long completed = results.stream()
+                .filter(result -> result.getOutcome() != TripFork.Result.Outcome.INCOMPLETE)
+                .count();
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Explored " + completed + " trips, of which " + failed.size() + " failed.");
+        lines.add("Trips cut short by the " + budget.get() + " budget: " + (results.size() - completed));
+        for (TripFork.Result result : failed) {
+            lines.add("");
+            lines.add(result.getTrip().toString());
+            lines.add("    JVM arguments: " + String.join(" ", result.getTrip().toCommandLineArguments()));
+            result.getFailures().forEach(failure -> lines.add("    " + failure));
+        }
+        File report = writeReport("explore.txt", lines);
+
+        getLogger().lifecycle("Explored {} trips, of which {} failed.", completed, failed.size());
+        if (!failed.isEmpty()) {
+            reportFailure("Found " + failed.size() + " failing trips.", report);
+        }
+    }
+}
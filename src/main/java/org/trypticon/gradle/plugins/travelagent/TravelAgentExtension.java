@@ -31,11 +31,21 @@ public class TravelAgentExtension {
      */
     private final ListProperty<Trip> availableTrips;
 
+    /**
+     * Lazy list of available locale data providers.
+     */
+    private final ListProperty<String> availableLocaleProviders;
+
     /**
      * Spec to match trips to accept.
      */
     private Spec<? super Trip> filter = Specs.SATISFIES_ALL;
 
+    /**
+     * The locale data providers to take every trip with instead of the available ones, or {@code null} if not forced.
+     */
+    private String forcedLocaleProviders;
+
 
     /**
      * Constructs the travel agent.
@@ -50,6 +60,9 @@ public class TravelAgentExtension {
 
         availableTrips = objectFactory.listProperty(Trip.class);
         availableTrips.set(providerFactory.provider(TravelAgentExtension::loadPredefinedTrips));
+
+        availableLocaleProviders = objectFactory.listProperty(String.class);
+        availableLocaleProviders.empty();
     }
 
 
@@ -88,6 +101,27 @@ public class TravelAgentExtension {
         return availableTrips;
     }
 
+    /**
+     * Gets the available locale data providers. Each available trip is taken once with each of them.
+     * By default this is empty, leaving the choice of provider to the JVM.
+     *
+     * @return the available locale data providers, in the format of the {@code java.locale.providers}
+     *         system property, e.g. {@code CLDR} or {@code COMPAT,CLDR}.
+     */
+    public ListProperty<String> getAvailableLocaleProviders() {
+        return availableLocaleProviders;
+    }
+
+    /**
+     * Gets the locale data providers forced with {@link #prefer(Object, Object, Object, Object)}, which are used
+     * in place of the available ones however those are configured.
+     *
+     * @return the forced locale data providers, or {@code null} if not forced.
+     */
+    String getForcedLocaleProviders() {
+        return forcedLocaleProviders;
+    }
+
     /**
      * Gets the spec to match trips to accept.
      *
@@ -116,6 +150,18 @@ public class TravelAgentExtension {
      * @param timeZone the time zone to force.
      */
     public void prefer(Object language, Object country, Object timeZone) {
+        prefer(language, country, timeZone, null);
+    }
+
+    /**
+     * Forces the travel agent to choose the given settings.
+     *
+     * @param language the language to force.
+     * @param country the country to force.
+     * @param timeZone the time zone to force.
+     * @param localeProviders the locale data providers to force.
+     */
+    public void prefer(Object language, Object country, Object timeZone, Object localeProviders) {
         if (language != null) {
             filter = Specs.intersect(filter, trip -> trip.getLanguage().equals(language.toString()));
         }
@@ -125,5 +171,9 @@ public class TravelAgentExtension {
         if (timeZone != null) {
             filter = Specs.intersect(filter, trip -> trip.getTimeZone().equals(timeZone.toString()));
         }
+        if (localeProviders != null) {
+            forcedLocaleProviders = localeProviders.toString();
+            filter = Specs.intersect(filter, trip -> trip.getLocaleProviders().equals(localeProviders.toString()));
+        }
     }
 }
@@ -0,0 +1,205 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import org.gradle.api.JavaVersion;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Task taking every trip once with each locale data provider, recording how long the JVM took to start,
+ * how long its first locale-sensitive call took and how long the tests took to run. This shows both which trips
+ * only fail with some providers and how much loading the locale data of each provider costs every test JVM.
+ * The locale data is only loaded on first use, so it barely shows up in the startup time.
+ */
+public class TravelAgentLocaleProvidersTask extends AbstractTravelAgentTask {
+
+    /**
+     * Lazy list of the locale data providers to compare.
+     */
+    private final ListProperty<String> localeProviders;
+
+    /**
+     * Lazy property for the number of times to take each trip with each provider.
+     */
+    private final Property<Integer> repetitions;
+
+
+    /**
+     * Constructs the task.
+     */
+    public TravelAgentLocaleProvidersTask() {
+        localeProviders = getProject().getObjects().listProperty(String.class);
+        // Not mapped from the test task property, which would make the test task a dependency.
+        localeProviders.set(getProject().provider(() ->
+                getDefaultLocaleProviders(getTestTask().get().getJavaVersion())));
+
+        repetitions = getProject().getObjects().property(Integer.class);
+        repetitions.set(3);
+    }
+
+
+    /**
+     * Gets the locale data providers worth comparing on a version of Java. Unknown provider names are silently
+     * ignored, which would leave rows in the report showing the default data under another name.
+     * Java 8 calls its own data JRE rather than COMPAT, and Java 23 removed that data altogether.
+     *
+     * @param javaVersion the version of Java the tests run on.
+     * @return the locale data providers.
+     */
+    static List<String> getDefaultLocaleProviders(JavaVersion javaVersion) {
+        if (!javaVersion.isJava9Compatible()) {
+            return ImmutableList.of("JRE", "CLDR", "HOST");
+        } else if (javaVersion == JavaVersion.VERSION_HIGHER || Integer.parseInt(javaVersion.getMajorVersion()) >= 23) {
+            // Too new for this version of Gradle to know, so it's safest to assume COMPAT is gone.
+            return ImmutableList.of("CLDR", "HOST");
+        } else {
+            return ImmutableList.of("CLDR", "COMPAT", "HOST");
+        }
+    }
+
+    /**
+     * Gets the locale data providers to compare, in the format of the {@code java.locale.providers}
+     * system property. Defaults to the ones available on the version of Java the test task runs on.
+     *
+     * @return the locale data providers.
+     */
+    @Input
+    public ListProperty<String> getLocaleProviders() {
+        return localeProviders;
+    }
+
+    /**
+     * Gets the number of times to take each trip with each provider. Timings are the median over all repetitions.
+     *
+     * @return the number of repetitions.
+     */
+    @Input
+    public Property<Integer> getRepetitions() {
+        return repetitions;
+    }
+
+    /**
+     * Takes every trip with every provider.
+     *
+     * @throws Exception if an error occurs.
+     */
+    @TaskAction
+    public void compare() throws Exception {
+        TravelAgentTaskExtension taskExtension = getTestTaskExtension();
+        List<String> testClasses = getTestClasses().get();
+
+        // The test task might already be varying the providers, but here every trip is taken with every provider.
+        Map<String, Trip> trips = new LinkedHashMap<>();
+        for (Trip availableTrip : taskExtension.getAvailableTrips().get()) {
+            for (String provider : localeProviders.get()) {
+                Trip trip = availableTrip.withLocaleProviders(provider);
+                if (taskExtension.isAcceptable(trip)) {
+                    trips.putIfAbsent(trip.toString(), trip);
+                }
+            }
+        }
+
+        // Forks run one at a time so that they don't skew each other's timings,
+        // and repetitions go round all the trips so that anything else slowing the machine down is spread out.
+        ListMultimap<String, TripFork.Result> results = MultimapBuilder.linkedHashKeys().arrayListValues().build();
+        int forkNumber = 0;
+        for (int repetition = 0; repetition < repetitions.get(); repetition++) {
+            for (Map.Entry<String, Trip> entry : trips.entrySet()) {
+                TripFork.Result result = createFork(entry.getValue(), "fork-" + forkNumber++).run(testClasses);
+                getLogger().info("{}: {} ms startup, {} ms loading locale data, {} ms tests, {}", entry.getKey(),
+                        result.getStartupMillis(), result.getLocaleDataMillis(), result.getTestMillis(),
+                        result.getOutcome());
+                results.put(entry.getKey(), result);
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        String format = "%-45s %-12s %12s %17s %12s  %s";
+        lines.add(String.format(format, "Trip", "Provider", "Startup (ms)", "Locale data (ms)", "Tests (ms)",
+                "Outcome"));
+        SetMultimap<String, String> failingProviders = LinkedHashMultimap.create();
+        SetMultimap<String, String> passingProviders = LinkedHashMultimap.create();
+        ListMultimap<String, TripFork.Result> resultsByProvider = MultimapBuilder.linkedHashKeys().arrayListValues().build();
+        List<String> failureLines = new ArrayList<>();
+        for (Map.Entry<String, List<TripFork.Result>> entry : Multimaps.asMap(results).entrySet()) {
+            List<TripFork.Result> tripResults = entry.getValue();
+            Trip trip = trips.get(entry.getKey());
+            String description = trip.withLocaleProviders("").toString();
+            String provider = trip.getLocaleProviders();
+            resultsByProvider.putAll(provider, tripResults);
+
+            List<String> failures = tripResults.stream()
+                    .flatMap(result -> result.getFailures().stream())
+                    .distinct()
+                    .collect(ImmutableList.toImmutableList());
+            (failures.isEmpty() ? passingProviders : failingProviders).put(description, provider);
+            if (!failures.isEmpty()) {
+                failureLines.add("");
+                failureLines.add(trip.toString());
+                failures.forEach(failure -> failureLines.add("    " + failure));
+            }
+
+            lines.add(String.format(format, description, provider,
+                    median(tripResults, TripFork.Result::getStartupMillis),
+                    median(tripResults, TripFork.Result::getLocaleDataMillis),
+                    median(tripResults, TripFork.Result::getTestMillis),
+                    failures.isEmpty() ? "PASSED" : "FAILED"));
+        }
+
+        lines.add("");
+        lines.add(String.format(format, "All trips", "Provider", "Startup (ms)", "Locale data (ms)", "Tests (ms)",
+                "Failed trips"));
+        for (Map.Entry<String, List<TripFork.Result>> entry : Multimaps.asMap(resultsByProvider).entrySet()) {
+            String provider = entry.getKey();
+            String startupMillis = median(entry.getValue(), TripFork.Result::getStartupMillis);
+            String localeDataMillis = median(entry.getValue(), TripFork.Result::getLocaleDataMillis);
+            String testMillis = median(entry.getValue(), TripFork.Result::getTestMillis);
+            long failedTrips = failingProviders.values().stream().filter(provider::equals).count();
+            lines.add(String.format(format, "", provider, startupMillis, localeDataMillis, testMillis, failedTrips));
+            getLogger().lifecycle("{}: median {} ms startup, {} ms loading locale data, {} ms tests, {} failed trips",
+                    provider, startupMillis, localeDataMillis, testMillis, failedTrips);
+        }
+
+        List<String> inconsistentTrips = failingProviders.keySet().stream()
+                .filter(passingProviders::containsKey)
+                .collect(ImmutableList.toImmutableList());
+        if (!inconsistentTrips.isEmpty()) {
+            lines.add("");
+            lines.add("Trips passing with some providers but not others:");
+            inconsistentTrips.forEach(description -> lines.add("    " + description +
+                    ": fails with " + String.join(", ", failingProviders.get(description)) +
+                    ", passes with " + String.join(", ", passingProviders.get(description))));
+        }
+        lines.addAll(failureLines);
+
+        File report = writeReport("localeProviders.txt", lines);
+        if (!failingProviders.isEmpty()) {
+            reportFailure("Found " + failingProviders.size() + " failing combinations of trip and provider. " +
+                    inconsistentTrips.size() + " trips pass with some providers but not others.", report);
+        }
+    }
+
+    /**
+     * Gets the median of a timing, leaving out forks which died before reporting any, as those only count as failures.
+     *
+     * @return the median, or {@code -} if no fork got far enough to report the timing.
+     */
+    private static String median(List<TripFork.Result> results, ToLongFunction<TripFork.Result> function) {
+        long[] values = results.stream().filter(TripFork.Result::hasResults).mapToLong(function).sorted().toArray();
+        return values.length == 0 ? "-" : String.valueOf(values[values.length / 2]);
+    }
+}
@@ -2,9 +2,12 @@ package org.trypticon.gradle.plugins.travelagent;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.testing.Test;
 
 import javax.annotation.Nonnull;
+import java.time.Duration;
 
 /**
  * Main entry point for plugin.
@@ -16,7 +19,8 @@ public class TravelAgentPlugin implements Plugin<Project> {
 
         globalExtension.prefer(project.findProperty("travelagent.language"),
                 project.findProperty("travelagent.country"),
-                project.findProperty("travelagent.timezone"));
+                project.findProperty("travelagent.timezone"),
+                project.findProperty("travelagent.localeproviders"));
 
         project.getTasks().withType(Test.class).configureEach(task -> {
             // Can't get dependency injection for this one for some reason :(
@@ -24,5 +28,38 @@ public class TravelAgentPlugin implements Plugin<Project> {
                     globalExtension, project.getObjects());
             task.getJvmArgumentProviders().add(new TravelAgentArgumentProvider(taskExtension));
         });
+
+        project.getPlugins().withType(JavaPlugin.class, javaPlugin -> {
+            TaskProvider<Test> testTask = project.getTasks().named(JavaPlugin.TEST_TASK_NAME, Test.class);
+
+            project.getTasks().register("exploreTrips", TravelAgentExploreTask.class, task -> {
+                task.setGroup("verification");
+                task.setDescription("Explores trips with Unicode extension keywords until the time budget runs out.");
+                task.getTestTask().set(testTask);
+
+                Object budget = project.findProperty("travelagent.budget");
+                if (budget != null) {
+                    task.getBudget().set(Duration.parse(budget.toString()));
+                }
+            });
+
+            project.getTasks().register("stressTrips", TravelAgentStressTask.class, task -> {
+                task.setGroup("verification");
+                task.setDescription("Runs tests on many threads at once, each having taken a different trip.");
+                task.getTestTask().set(testTask);
+            });
+
+            project.getTasks().register("compareLocaleProviders", TravelAgentLocaleProvidersTask.class, task -> {
+                task.setGroup("verification");
+                task.setDescription("Takes every trip with each locale data provider, recording startup and test times.");
+                task.getTestTask().set(testTask);
+            });
+
+            project.getTasks().register("diffTrips", TravelAgentDiffTask.class, task -> {
+                task.setGroup("verification");
+                task.setDescription("Compares the outputs of the tests between a baseline trip and a target trip.");
+                task.getTestTask().set(testTask);
+            });
+        });
     }
 }
@@ -0,0 +1,192 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.TaskAction;
+import org.objectweb.asm.ClassVisitor;
+import org.trypticon.gradle.plugins.travelagent.launcher.PerThreadDefaults;
+import org.trypticon.gradle.plugins.travelagent.launcher.PerThreadDefaultsAgent;
+import org.trypticon.gradle.plugins.travelagent.launcher.StressLauncher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+/**
+ * Task running the tests on many threads at once in a single JVM, with each thread having taken a different
+ * trip. This gets shared formatters, caches and per-locale memoization hit concurrently under different locales
+ * and time zones, as they would be on a shared thread pool in production, which one trip per JVM never does.
+ *
+ * Failures which only happen under concurrency are reported as possible data races, together with
+ * the throughput for each thread count.
+ */
+public class TravelAgentStressTask extends AbstractTravelAgentTask {
+
+    /**
+     * Allowance on top of the duration for the JVM to start and run each trip alone before the stress run.
+     */
+    private static final Duration FORK_ALLOWANCE = Duration.ofMinutes(5);
+
+    /**
+     * Lazy list of the numbers of threads to try.
+     */
+    private final ListProperty<Integer> threadCounts;
+
+    /**
+     * Lazy property for how long to run the tests for at each thread count.
+     */
+    private final Property<Duration> duration;
+
+
+    /**
+     * Constructs the task.
+     */
+    public TravelAgentStressTask() {
+        threadCounts = getProject().getObjects().listProperty(Integer.class);
+        threadCounts.set(ImmutableList.of(1, 2, 4, 8));
+
+        duration = getProject().getObjects().property(Duration.class);
+        duration.set(Duration.ofSeconds(30));
+    }
+
+
+    /**
+     * Gets the numbers of threads to try. Each thread count gets a fresh JVM.
+     *
+     * @return the thread counts.
+     */
+    @Input
+    public ListProperty<Integer> getThreadCounts() {
+        return threadCounts;
+    }
+
+    /**
+     * Gets how long to keep running the tests for at each thread count.
+     *
+     * @return the duration.
+     */
+    @Input
+    public Property<Duration> getDuration() {
+        return duration;
+    }
+
+    /**
+     * Runs the tests at each thread count.
+     *
+     * @throws Exception if an error occurs.
+     */
+    @TaskAction
+    public void stress() throws Exception {
+        List<Trip> trips = new ArrayList<>(getTestTaskExtension().getAcceptableTrips().get());
+        if (trips.isEmpty()) {
+            throw new GradleException("No acceptable trips to take");
+        }
+        Collections.shuffle(trips, new SecureRandom());
+
+        File tripsFile = new File(getTemporaryDir(), "trips.txt");
+        Files.write(tripsFile.toPath(), trips.stream()
+                .map(trip -> trip.toLanguageTag() + " " + trip.getTimeZone())
+                .collect(Collectors.toList()), StandardCharsets.UTF_8);
+        File agentJar = writeAgentJar();
+        String agentClasspath = TripFork.getCodeLocation(PerThreadDefaultsAgent.class) + File.pathSeparator +
+                TripFork.getCodeLocation(ClassVisitor.class);
+        List<String> testClasses = getTestClasses().get();
+
+        List<String> summary = new ArrayList<>();
+        List<String> details = new ArrayList<>();
+        summary.add(String.format("%-8s %-10s %-10s %s", "Threads", "Runs", "Runs/s", "Possible races"));
+        int raceCount = 0;
+        int otherFailureCount = 0;
+        for (int threadCount : threadCounts.get()) {
+            // The JVM-wide defaults are only seen by the launcher itself, as every test thread has its own.
+            TripFork fork = createFork(trips.get(0), "threads-" + threadCount);
+            fork.addJvmArguments(ImmutableList.of("-javaagent:" + agentJar.getAbsolutePath() + "=" + agentClasspath));
+            fork.setMainClass(StressLauncher.class.getName(), ImmutableList.of(
+                    tripsFile.getAbsolutePath(), String.valueOf(threadCount), String.valueOf(duration.get().toMillis())));
+
+            TripFork.Result result = fork.run(testClasses, Instant.now().plus(duration.get()).plus(FORK_ALLOWANCE));
+            if (!result.hasResults()) {
+                // The launcher never finished, so the failure is all there is.
+                throw new GradleException("Stress run with " + threadCount + " threads failed: " +
+                        result.getFailures().get(0));
+            }
+
+            double runsPerSecond = result.getRunCount() * 1000.0 / Math.max(1, result.getTestMillis());
+            List<String> races = result.getFailures();
+            raceCount += races.size();
+            // The daemon's own locale has nothing to do with the trips, and would change the report.
+            summary.add(String.format(Locale.ROOT, "%-8d %-10d %-10.1f %d", threadCount, result.getRunCount(),
+                    runsPerSecond, races.size()));
+            getLogger().lifecycle("{} threads: {} runs/s, {} possible races", threadCount,
+                    String.format(Locale.ROOT, "%.1f", runsPerSecond), races.size());
+
+            if (!races.isEmpty()) {
+                details.add("");
+                details.add("Possible races with " + threadCount + " threads:");
+                races.forEach(race -> details.add("    " + race));
+            }
+            // Each trip runs alone first, but in the same JVM, so these also include state leaking between trips.
+            List<String> baselineFailures = result.getList("baselineFailure");
+            otherFailureCount += baselineFailures.size();
+            if (!baselineFailures.isEmpty()) {
+                details.add("");
+                details.add("Failures without concurrency, with " + threadCount + " threads:");
+                baselineFailures.forEach(failure -> details.add("    " + failure));
+            }
+        }
+
+        summary.addAll(details);
+        File report = writeReport("stress.txt", summary);
+        if (raceCount > 0 || otherFailureCount > 0) {
+            reportFailure("Found " + raceCount + " possible races and " + otherFailureCount + " other failures.", report);
+        }
+    }
+
+    /**
+     * Writes the jar for {@link PerThreadDefaultsAgent}, along with a second jar containing only
+     * {@link PerThreadDefaults} for the bootstrap class loader.
+     *
+     * @return the agent jar.
+     * @throws IOException if an error occurs writing the jars.
+     */
+    private File writeAgentJar() throws IOException {
+        File bootJar = new File(getTemporaryDir(), "travel-agent-boot.jar");
+        try (JarOutputStream stream = new JarOutputStream(Files.newOutputStream(bootJar.toPath()))) {
+            String entryName = PerThreadDefaults.class.getName().replace('.', '/') + ".class";
+            stream.putNextEntry(new JarEntry(entryName));
+            try (InputStream classStream = PerThreadDefaults.class.getClassLoader().getResourceAsStream(entryName)) {
+                ByteStreams.copy(classStream, stream);
+            }
+        }
+
+        // The agent class itself is found on the regular classpath, and loads the rest from the agent arguments.
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Premain-Class", PerThreadDefaultsAgent.class.getName());
+        attributes.putValue("Can-Retransform-Classes", "true");
+        attributes.putValue("Boot-Class-Path", bootJar.getName());
+
+        File agentJar = new File(getTemporaryDir(), "travel-agent-agent.jar");
+        new JarOutputStream(Files.newOutputStream(agentJar.toPath()), manifest).close();
+        return agentJar;
+    }
+}
@@ -13,6 +13,7 @@ import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import java.security.SecureRandom;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Extension holding per-task configuration for Travel Agent.
@@ -34,6 +35,11 @@ public class TravelAgentTaskExtension {
      */
     private final ListProperty<Trip> availableTrips;
 
+    /**
+     * Lazy list of available locale data providers.
+     */
+    private final ListProperty<String> availableLocaleProviders;
+
     /**
      * Spec to match trips to accept.
      */
@@ -61,11 +67,20 @@ public class TravelAgentTaskExtension {
         availableTrips = objectFactory.listProperty(Trip.class);
         availableTrips.set(globalExtension.getAvailableTrips());
 
-        acceptableTrips = availableTrips.map(trips ->
-                trips.stream()
-                        .filter(filter::isSatisfiedBy)
-                        .filter(globalExtension.getFilter()::isSatisfiedBy)
-                        .collect(ImmutableList.toImmutableList()));
+        availableLocaleProviders = objectFactory.listProperty(String.class);
+        availableLocaleProviders.set(globalExtension.getAvailableLocaleProviders());
+
+        acceptableTrips = availableTrips.map(trips -> {
+            // Forcing a provider has to work whatever the available providers are.
+            String forcedLocaleProviders = globalExtension.getForcedLocaleProviders();
+            List<String> localeProviders = forcedLocaleProviders != null
+                    ? ImmutableList.of(forcedLocaleProviders) : availableLocaleProviders.get();
+            return trips.stream()
+                    .flatMap(trip -> localeProviders.isEmpty() ? Stream.of(trip) :
+                            localeProviders.stream().map(trip::withLocaleProviders))
+                    .filter(this::isAcceptable)
+                    .collect(ImmutableList.toImmutableList());
+        });
     }
 
 
@@ -87,6 +102,15 @@ public class TravelAgentTaskExtension {
         return availableTrips;
     }
 
+    /**
+     * Gets the available locale data providers. Each available trip is taken once with each of them.
+     *
+     * @return the available locale data providers.
+     */
+    public ListProperty<String> getAvailableLocaleProviders() {
+        return availableLocaleProviders;
+    }
+
     /**
      * Gets the trips satisfying the filter.
      *
@@ -116,6 +140,17 @@ public class TravelAgentTaskExtension {
         filter = Specs.intersect(filter, Specs.negate(spec));
     }
 
+    /**
+     * Tests whether a trip is acceptable to both this task and the global configuration.
+     * Applies equally to trips which were never in the list of available trips, such as explored trips.
+     *
+     * @param trip the trip.
+     * @return {@code true} if the trip is acceptable, {@code false} otherwise.
+     */
+    boolean isAcceptable(Trip trip) {
+        return filter.isSatisfiedBy(trip) && globalExtension.getFilter().isSatisfiedBy(trip);
+    }
+
     /**
      * Suggests a trip which matches the requirements.
      *
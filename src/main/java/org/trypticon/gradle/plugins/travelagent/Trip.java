@@ -4,6 +4,8 @@ import com.google.common.collect.ImmutableList;
 
 import javax.annotation.concurrent.Immutable;
 import java.io.Serializable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Models a locale, time zone and any other related information for a single location in the world.
@@ -11,8 +13,11 @@ import java.io.Serializable;
 @Immutable
 public final class Trip implements Serializable {
     private final String language;
+    private final String script;
     private final String country;
+    private final String extensions;
     private final String timeZone;
+    private final String localeProviders;
 
     /**
      * Constructs the trip.
@@ -22,9 +27,17 @@ public final class Trip implements Serializable {
      * @param timeZone the time zone ID.
      */
     public Trip(String language, String country, String timeZone) {
+        this(language, "", country, "", timeZone, "");
+    }
+
+    private Trip(String language, String script, String country, String extensions, String timeZone,
+                 String localeProviders) {
         this.language = language;
+        this.script = script;
         this.country = country;
+        this.extensions = extensions;
         this.timeZone = timeZone;
+        this.localeProviders = localeProviders;
     }
 
     /**
@@ -36,6 +49,15 @@ public final class Trip implements Serializable {
         return language;
     }
 
+    /**
+     * Gets the script code.
+     *
+     * @return the script code, or an empty string if the default script for the language is used.
+     */
+    public String getScript() {
+        return script;
+    }
+
     /**
      * Gets the country code.
      *
@@ -45,6 +67,15 @@ public final class Trip implements Serializable {
         return country;
     }
 
+    /**
+     * Gets the BCP 47 extensions, e.g. {@code u-nu-arab} or {@code u-ca-japanese}.
+     *
+     * @return the extensions, or an empty string if there are none.
+     */
+    public String getExtensions() {
+        return extensions;
+    }
+
     /**
      * Gets the time zone ID.
      *
@@ -54,15 +85,85 @@ public final class Trip implements Serializable {
         return timeZone;
     }
 
+    /**
+     * Gets the locale data providers, in the format of the {@code java.locale.providers} system property.
+     *
+     * @return the locale data providers, e.g. {@code CLDR} or {@code COMPAT}, or an empty string to use
+     *         the JVM's default.
+     */
+    public String getLocaleProviders() {
+        return localeProviders;
+    }
+
+    /**
+     * Returns a copy of this trip using the given script.
+     *
+     * @param script the script code, e.g. {@code Hant}.
+     * @return the new trip.
+     */
+    public Trip withScript(String script) {
+        return new Trip(language, script, country, extensions, timeZone, localeProviders);
+    }
+
+    /**
+     * Returns a copy of this trip using the given BCP 47 extensions.
+     * Only honoured by Java 9 and later, as Java 8 ignores the {@code user.extensions} property.
+     *
+     * @param extensions the extensions, e.g. {@code u-nu-arab}.
+     * @return the new trip.
+     */
+    public Trip withExtensions(String extensions) {
+        return new Trip(language, script, country, extensions, timeZone, localeProviders);
+    }
+
+    /**
+     * Returns a copy of this trip using the given locale data providers.
+     * Which providers exist depends on the Java version, e.g. {@code COMPAT} replaced {@code JRE} in Java 9.
+     *
+     * @param localeProviders the locale data providers, e.g. {@code CLDR} or {@code COMPAT,CLDR},
+     *                        or an empty string to use the JVM's default.
+     * @return the new trip.
+     */
+    public Trip withLocaleProviders(String localeProviders) {
+        return new Trip(language, script, country, extensions, timeZone, localeProviders);
+    }
+
+    /**
+     * Gets the BCP 47 language tag for the locale.
+     *
+     * @return the language tag, e.g. {@code ar-SA-u-nu-arab}.
+     */
+    public String toLanguageTag() {
+        return Stream.of(language, script, country, extensions)
+                .filter(part -> !part.isEmpty())
+                .collect(Collectors.joining("-"));
+    }
+
     /**
      * Converts the trip to command-line arguments for the JVM.
      *
      * @return the command-line arguments.
      */
     Iterable<String> toCommandLineArguments() {
-        return ImmutableList.of(
-                "-Duser.language=" + language,
-                "-Duser.country=" + country,
-                "-Duser.timezone=" + timeZone);
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        builder.add("-Duser.language=" + language);
+        if (!script.isEmpty()) {
+            builder.add("-Duser.script=" + script);
+        }
+        builder.add("-Duser.country=" + country);
+        if (!extensions.isEmpty()) {
+            builder.add("-Duser.extensions=" + extensions);
+        }
+        builder.add("-Duser.timezone=" + timeZone);
+        if (!localeProviders.isEmpty()) {
+            builder.add("-Djava.locale.providers=" + localeProviders);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        String description = toLanguageTag() + " (" + timeZone + ")";
+        return localeProviders.isEmpty() ? description : description + " [" + localeProviders + "]";
     }
 }
@@ -0,0 +1,355 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.gradle.api.tasks.testing.Test;
+import org.trypticon.gradle.plugins.travelagent.launcher.TripLauncher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs test classes in a fresh JVM which has taken a trip.
+ *
+ * Everything needed from the test task is captured on construction, so that the fork itself
+ * can be run from any thread.
+ */
+class TripFork {
+    private final Trip trip;
+    private final File directory;
+    private final File workingDir;
+    private final List<String> jvmArguments;
+    private final List<File> classpath;
+    private final Map<String, String> environment;
+    private String mainClass = TripLauncher.class.getName();
+    private List<String> arguments = ImmutableList.of();
+
+    /**
+     * Constructs the fork.
+     *
+     * @param testTask the test task whose classpath and JVM settings to use.
+     * @param trip the trip to take.
+     * @param directory a directory to hold the files for this fork.
+     */
+    TripFork(Test testTask, Trip trip, File directory) {
+        this.trip = trip;
+        this.directory = directory;
+        workingDir = testTask.getWorkingDir();
+
+        jvmArguments = new ArrayList<>();
+        jvmArguments.add(testTask.getExecutable());
+        // Deliberately not getAllJvmArgs(), which would include another trip from the argument provider.
+        jvmArguments.addAll(testTask.getJvmArgs());
+        testTask.getSystemProperties().forEach((key, value) -> jvmArguments.add("-D" + key + "=" + value));
+        if (testTask.getMinHeapSize() != null) {
+            jvmArguments.add("-Xms" + testTask.getMinHeapSize());
+        }
+        if (testTask.getMaxHeapSize() != null) {
+            jvmArguments.add("-Xmx" + testTask.getMaxHeapSize());
+        }
+        trip.toCommandLineArguments().forEach(jvmArguments::add);
+        jvmArguments.add("-D" + TripLauncher.RESULT_FILE_PROPERTY + "=" + getResultFile());
+
+        classpath = ImmutableList.<File>builder()
+                .addAll(testTask.getClasspath().getFiles())
+                .add(getCodeLocation(TripFork.class))
+                .build();
+
+        environment = testTask.getEnvironment().entrySet().stream()
+                .collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, entry -> String.valueOf(entry.getValue())));
+    }
+
+    /**
+     * Gets the location a class was loaded from. For classes in the plugin, this also contains the launchers.
+     *
+     * @param type the class.
+     * @return the location of the jar or directory.
+     */
+    static File getCodeLocation(Class<?> type) {
+        return new File(URI.create(type.getProtectionDomain().getCodeSource().getLocation().toString()));
+    }
+
+    /**
+     * Adds arguments for the JVM.
+     *
+     * @param arguments the arguments.
+     */
+    void addJvmArguments(List<String> arguments) {
+        jvmArguments.addAll(arguments);
+    }
+
+    /**
+     * Sets the main class to run instead of {@link TripLauncher}. The main class is always passed
+     * the path to a file listing the test class names as its first argument.
+     *
+     * @param mainClass the name of the main class.
+     * @param arguments the arguments to pass after the test classes file.
+     */
+    void setMainClass(String mainClass, List<String> arguments) {
+        this.mainClass = mainClass;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Gets the trip taken by the fork.
+     *
+     * @return the trip.
+     */
+    Trip getTrip() {
+        return trip;
+    }
+
+    /**
+     * Gets the directory holding the files for this fork.
+     *
+     * @return the directory.
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    private File getTestClassesFile() {
+        return new File(directory, "classes.txt");
+    }
+
+    private File getResultFile() {
+        return new File(directory, "result.properties");
+    }
+
+    private File getClasspathJarFile() {
+        return new File(directory, "classpath.jar");
+    }
+
+    /**
+     * Gets the file standard output is written to.
+     *
+     * @return the standard output file.
+     */
+    File getStandardOutputFile() {
+        return new File(directory, "stdout.txt");
+    }
+
+    /**
+     * Gets the file standard error is written to.
+     *
+     * @return the standard error file.
+     */
+    File getStandardErrorFile() {
+        return new File(directory, "stderr.txt");
+    }
+
+    /**
+     * Runs the fork, waiting for as long as it takes to complete.
+     *
+     * @param testClasses the names of the test classes to run.
+     * @return the result.
+     * @throws IOException if an error occurs starting the fork or reading its results.
+     * @throws InterruptedException if interrupted while waiting for the fork.
+     */
+    Result run(List<String> testClasses) throws IOException, InterruptedException {
+        return run(testClasses, null);
+    }
+
+    /**
+     * Runs the fork, waiting for it to complete.
+     *
+     * @param testClasses the names of the test classes to run.
+     * @param deadline the time at which to give up on the fork and kill it, or {@code null} to never give up.
+     * @return the result.
+     * @throws IOException if an error occurs starting the fork or reading its results.
+     * @throws InterruptedException if interrupted while waiting for the fork.
+     */
+    Result run(List<String> testClasses, Instant deadline) throws IOException, InterruptedException {
+        Files.createDirectories(directory.toPath());
+        Files.write(getTestClassesFile().toPath(), testClasses, StandardCharsets.UTF_8);
+        // The directory may be left over from an earlier run of the same task.
+        Files.deleteIfExists(getResultFile().toPath());
+        writeClasspathJar();
+
+        List<String> command = ImmutableList.<String>builder()
+                .addAll(jvmArguments)
+                .add("-cp", getClasspathJarFile().getAbsolutePath())
+                .add(mainClass)
+                .add(getTestClassesFile().getAbsolutePath())
+                .addAll(arguments)
+                .build();
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command)
+                .directory(workingDir)
+                .redirectOutput(getStandardOutputFile())
+                .redirectError(getStandardErrorFile());
+        processBuilder.environment().clear();
+        processBuilder.environment().putAll(environment);
+
+        Process process = processBuilder.start();
+        if (deadline == null) {
+            process.waitFor();
+        } else if (!process.waitFor(Math.max(0, Duration.between(Instant.now(), deadline).toMillis()),
+                TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly().waitFor();
+            return new Result(this, Result.Outcome.INCOMPLETE, ImmutableList.of(
+                    "Forked JVM was killed for not finishing in time, see " + getStandardErrorFile()), new Properties());
+        }
+
+        File resultFile = getResultFile();
+        if (!resultFile.isFile()) {
+            return new Result(this, Result.Outcome.FAILED, ImmutableList.of(
+                    "Forked JVM exited with code " + process.exitValue() + " without running tests, see " +
+                            getStandardErrorFile()), new Properties());
+        }
+
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(resultFile.toPath())) {
+            properties.load(stream);
+        }
+        List<String> failures = Result.getList(properties, "failure");
+        return new Result(this, failures.isEmpty() ? Result.Outcome.PASSED : Result.Outcome.FAILED, failures,
+                properties);
+    }
+
+    /**
+     * Writes a jar containing nothing but a manifest listing the classpath, the same as Gradle does for its own
+     * test workers. A real test runtime classpath is easily longer than the Windows command line allows.
+     *
+     * @throws IOException if an error occurs writing the jar.
+     */
+    private void writeClasspathJar() throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.CLASS_PATH, classpath.stream()
+                .map(file -> file.toURI().toString())
+                .collect(Collectors.joining(" ")));
+        new JarOutputStream(Files.newOutputStream(getClasspathJarFile().toPath()), manifest).close();
+    }
+
+    /**
+     * The result of running a fork.
+     */
+    static final class Result {
+        /**
+         * How the fork turned out.
+         */
+        enum Outcome {
+            PASSED,
+            FAILED,
+            /**
+             * The fork ran out of time and was killed.
+             */
+            INCOMPLETE
+        }
+
+        private final TripFork fork;
+        private final Outcome outcome;
+        private final List<String> failures;
+        private final Properties properties;
+
+        private Result(TripFork fork, Outcome outcome, List<String> failures, Properties properties) {
+            this.fork = fork;
+            this.outcome = outcome;
+            this.failures = failures;
+            this.properties = properties;
+        }
+
+        /**
+         * Gets a list written by the launcher as a count followed by numbered entries.
+         *
+         * @param properties the properties written by the launcher.
+         * @param name the name of the list, e.g. {@code failure} for {@code failureCount}, {@code failure.0}, etc.
+         * @return the list, empty if the launcher didn't write it.
+         */
+        private static List<String> getList(Properties properties, String name) {
+            return Stream.iterate(0, i -> i + 1)
+                    .limit(Integer.parseInt(properties.getProperty(name + "Count", "0")))
+                    .map(i -> properties.getProperty(name + "." + i))
+                    .collect(ImmutableList.toImmutableList());
+        }
+
+        private long getLong(String name) {
+            return Long.parseLong(properties.getProperty(name, "0"));
+        }
+
+        /**
+         * Gets whether the launcher got as far as writing its results.
+         *
+         * @return {@code true} if there are results, {@code false} if the fork was killed or died early.
+         */
+        boolean hasResults() {
+            return !properties.isEmpty();
+        }
+
+        Trip getTrip() {
+            return fork.getTrip();
+        }
+
+        Outcome getOutcome() {
+            return outcome;
+        }
+
+        List<String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Gets a list written by the launcher in addition to the failures.
+         *
+         * @param name the name of the list.
+         * @return the list, empty if the launcher didn't write it.
+         */
+        List<String> getList(String name) {
+            return getList(properties, name);
+        }
+
+        /**
+         * Gets how long the JVM took to start, up to the point where tests could begin loading.
+         *
+         * @return the startup time in milliseconds.
+         */
+        long getStartupMillis() {
+            return getLong("startupMillis");
+        }
+
+        /**
+         * Gets how long the first locale-sensitive call took, which is when the locale data gets loaded.
+         *
+         * @return the locale data loading time in milliseconds.
+         */
+        long getLocaleDataMillis() {
+            return getLong("localeDataMillis");
+        }
+
+        /**
+         * Gets how long the tests took to run.
+         *
+         * @return the test duration in milliseconds.
+         */
+        long getTestMillis() {
+            return getLong("testMillis");
+        }
+
+        /**
+         * Gets how many tests were run. When running the same tests repeatedly, how many times they were run.
+         *
+         * @return the run count.
+         */
+        long getRunCount() {
+            return getLong("runCount");
+        }
+    }
+}
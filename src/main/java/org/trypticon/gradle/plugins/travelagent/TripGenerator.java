@@ -0,0 +1,105 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import groovy.json.JsonSlurper;
+import org.gradle.api.specs.Spec;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates trips to explore by taking existing trips and adding scripts and Unicode extension keywords.
+ * Every acceptable combination is worked out up front and handed out in a random order, so each generated trip
+ * is distinct from all trips previously generated, and running out of trips really means there are none left.
+ */
+class TripGenerator {
+
+    /**
+     * The maximum number of extension keywords to add to a single trip.
+     */
+    private static final int MAX_KEYWORDS = 2;
+
+    private final Iterator<Trip> trips;
+
+    /**
+     * Constructs the generator.
+     *
+     * @param baseTrips the trips to start from.
+     * @param filter spec to match generated trips to accept.
+     */
+    TripGenerator(List<Trip> baseTrips, Spec<? super Trip> filter) {
+        @SuppressWarnings("unchecked")
+        Map<String, List<Map<String, Object>>> data = (Map<String, List<Map<String, Object>>>)
+                new JsonSlurper().parse(TripGenerator.class.getResource("extensions.json"));
+        ImmutableListMultimap<String, String> keywords = toMultimap(data.get("keywords"), "key", "values");
+        ImmutableListMultimap<String, String> scripts = toMultimap(data.get("scripts"), "language", "scripts");
+
+        List<String> extensions = new ArrayList<>();
+        addExtensions(extensions, keywords, ImmutableList.sortedCopyOf(keywords.keySet()), 0, "u", 0);
+
+        Map<String, Trip> candidates = new LinkedHashMap<>();
+        for (Trip baseTrip : baseTrips) {
+            List<Trip> scriptTrips = new ArrayList<>();
+            scriptTrips.add(baseTrip);
+            scripts.get(baseTrip.getLanguage()).forEach(script -> scriptTrips.add(baseTrip.withScript(script)));
+            for (Trip scriptTrip : scriptTrips) {
+                for (String extension : extensions) {
+                    Trip trip = scriptTrip.withExtensions(extension);
+                    if (filter.isSatisfiedBy(trip)) {
+                        candidates.putIfAbsent(trip.toString(), trip);
+                    }
+                }
+            }
+        }
+
+        List<Trip> shuffled = new ArrayList<>(candidates.values());
+        Collections.shuffle(shuffled, new SecureRandom());
+        trips = shuffled.iterator();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ImmutableListMultimap<String, String> toMultimap(List<Map<String, Object>> records,
+                                                                     String keyName, String valuesName) {
+        ImmutableListMultimap.Builder<String, String> builder = ImmutableListMultimap.builder();
+        records.forEach(record -> builder.putAll((String) record.get(keyName), (List<String>) record.get(valuesName)));
+        return builder.build();
+    }
+
+    /**
+     * Adds every extension with between one and {@link #MAX_KEYWORDS} keywords, keeping the keys in order.
+     *
+     * @param extensions the list to add the extensions to.
+     * @param keywords the values for each key.
+     * @param keys the keys, sorted.
+     * @param fromKey the index of the first key which may still be added.
+     * @param prefix the extension built up so far.
+     * @param keywordCount the number of keywords in the prefix.
+     */
+    private static void addExtensions(List<String> extensions, ImmutableListMultimap<String, String> keywords,
+                                      List<String> keys, int fromKey, String prefix, int keywordCount) {
+        for (int i = fromKey; i < keys.size(); i++) {
+            for (String value : keywords.get(keys.get(i))) {
+                String extension = prefix + '-' + keys.get(i) + '-' + value;
+                extensions.add(extension);
+                if (keywordCount + 1 < MAX_KEYWORDS) {
+                    addExtensions(extensions, keywords, keys, i + 1, extension, keywordCount + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates the next trip.
+     *
+     * @return the trip, or {@code null} if there are no acceptable trips left.
+     */
+    Trip next() {
+        return trips.hasNext() ? trips.next() : null;
+    }
+}
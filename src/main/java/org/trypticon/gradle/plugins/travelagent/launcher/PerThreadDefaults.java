@@ -0,0 +1,60 @@
+package org.trypticon.gradle.plugins.travelagent.launcher;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Holds the default locale and time zone for the current thread, overriding the JVM-wide defaults.
+ *
+ * {@link PerThreadDefaultsTransformer} rewrites {@link Locale#getDefault()} and {@code TimeZone.getDefaultRef()} to
+ * call into this class, so it has to be loaded by the bootstrap class loader. For the same reason, it must
+ * not refer to any other class in the plugin.
+ */
+public final class PerThreadDefaults {
+    private static final InheritableThreadLocal<Locale> locale = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<TimeZone> timeZone = new InheritableThreadLocal<>();
+
+    private PerThreadDefaults() {
+    }
+
+    /**
+     * Sets the defaults for the current thread and any threads it goes on to create.
+     *
+     * @param newLocale the locale.
+     * @param newTimeZone the time zone.
+     */
+    public static void set(Locale newLocale, TimeZone newTimeZone) {
+        locale.set(newLocale);
+        timeZone.set(newTimeZone);
+    }
+
+    /**
+     * Clears the defaults for the current thread, reverting to the JVM-wide defaults.
+     */
+    public static void clear() {
+        locale.remove();
+        timeZone.remove();
+    }
+
+    /**
+     * Called from the rewritten {@link Locale#getDefault()} methods.
+     *
+     * @param jvmDefault the JVM-wide default.
+     * @return the locale for the current thread, or the JVM-wide default if there isn't one.
+     */
+    public static Locale locale(Locale jvmDefault) {
+        Locale threadDefault = locale.get();
+        return threadDefault != null ? threadDefault : jvmDefault;
+    }
+
+    /**
+     * Called from the rewritten {@code TimeZone.getDefaultRef()} method.
+     *
+     * @param jvmDefault the JVM-wide default.
+     * @return the time zone for the current thread, or the JVM-wide default if there isn't one.
+     */
+    public static TimeZone timeZone(TimeZone jvmDefault) {
+        TimeZone threadDefault = timeZone.get();
+        return threadDefault != null ? threadDefault : jvmDefault;
+    }
+}
@@ -0,0 +1,47 @@
+package org.trypticon.gradle.plugins.travelagent.launcher;
+
+import java.io.File;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Java agent installing {@link PerThreadDefaultsTransformer}.
+ *
+ * The agent jar is generated by the plugin, with {@link PerThreadDefaults} on its {@code Boot-Class-Path}
+ * and nothing else inside, so this class gets loaded from the regular classpath. The tests may well have
+ * their own, older version of ASM on that classpath, so the transformer and ASM are loaded from the locations
+ * given as the agent arguments, by a class loader which only delegates to the bootstrap class loader.
+ */
+public final class PerThreadDefaultsAgent {
+    private static final String TRANSFORMER = "org.trypticon.gradle.plugins.travelagent.launcher.PerThreadDefaultsTransformer";
+
+    private PerThreadDefaultsAgent() {
+    }
+
+    /**
+     * Installs the agent.
+     *
+     * @param agentArgs the locations of the plugin and ASM, separated by the path separator.
+     * @param instrumentation the instrumentation.
+     * @throws Exception if an error occurs loading the transformer or retransforming the already-loaded classes.
+     */
+    public static void premain(String agentArgs, Instrumentation instrumentation) throws Exception {
+        List<URL> locations = new ArrayList<>();
+        for (String path : agentArgs.split(File.pathSeparator)) {
+            locations.add(new File(path).toURI().toURL());
+        }
+        // Never closed, as the transformer stays installed until the JVM exits.
+        ClassLoader classLoader = new URLClassLoader(locations.toArray(new URL[0]), null);
+        ClassFileTransformer transformer = (ClassFileTransformer)
+                classLoader.loadClass(TRANSFORMER).getConstructor().newInstance();
+
+        instrumentation.addTransformer(transformer, true);
+        instrumentation.retransformClasses(Locale.class, TimeZone.class);
+    }
+}
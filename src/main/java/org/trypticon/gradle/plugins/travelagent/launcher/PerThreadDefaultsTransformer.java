@@ -0,0 +1,90 @@
+package org.trypticon.gradle.plugins.travelagent.launcher;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Transformer making the default locale and time zone per-thread, by rewriting every value returned from
+ * {@link Locale#getDefault()}, {@link Locale#getDefault(Locale.Category)} and {@code TimeZone.getDefaultRef()}
+ * (which {@link TimeZone#getDefault()} and most of the JDK go through) to pass through {@link PerThreadDefaults}.
+ *
+ * This is the only launcher class using ASM. {@link PerThreadDefaultsAgent} loads it in a class loader of its own
+ * together with ASM, so it never sees whichever version of ASM the tests might have on their classpath.
+ */
+public final class PerThreadDefaultsTransformer implements ClassFileTransformer {
+    private static final String LOCALE = Type.getInternalName(Locale.class);
+    private static final String TIME_ZONE = Type.getInternalName(TimeZone.class);
+    private static final String PER_THREAD_DEFAULTS = Type.getInternalName(PerThreadDefaults.class);
+
+    /**
+     * Constructs the transformer. Only called reflectively by {@link PerThreadDefaultsAgent}.
+     */
+    public PerThreadDefaultsTransformer() {
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        if (!LOCALE.equals(className) && !TIME_ZONE.equals(className)) {
+            return null;
+        }
+
+        try {
+            ClassReader reader = new ClassReader(classfileBuffer);
+            // The rewrite replaces one reference on the stack with another, so maxs and frames are unaffected.
+            ClassWriter writer = new ClassWriter(reader, 0);
+            reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                                 String[] exceptions) {
+                    MethodVisitor visitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+                    if (LOCALE.equals(className) && name.equals("getDefault")) {
+                        return new ReturnValueRewriter(visitor, "locale", LOCALE);
+                    } else if (TIME_ZONE.equals(className) && name.equals("getDefaultRef")) {
+                        return new ReturnValueRewriter(visitor, "timeZone", TIME_ZONE);
+                    } else {
+                        return visitor;
+                    }
+                }
+            }, 0);
+            return writer.toByteArray();
+        } catch (RuntimeException e) {
+            // Exceptions thrown from here are silently swallowed by the JVM, so at least leave a trace.
+            // The launcher notices that the defaults aren't per-thread and refuses to run.
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Passes the value returned from a method through a method on {@link PerThreadDefaults}.
+     */
+    private static class ReturnValueRewriter extends MethodVisitor {
+        private final String methodName;
+        private final String typeName;
+
+        ReturnValueRewriter(MethodVisitor visitor, String methodName, String typeName) {
+            super(Opcodes.ASM9, visitor);
+            this.methodName = methodName;
+            this.typeName = typeName;
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            if (opcode == Opcodes.ARETURN) {
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, PER_THREAD_DEFAULTS, methodName,
+                        "(L" + typeName + ";)L" + typeName + ";", false);
+            }
+            super.visitInsn(opcode);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.trypticon.gradle.plugins.travelagent.launcher;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entry point for a forked JVM running JUnit tests on many threads at once, each thread having taken
+ * a different trip through {@link PerThreadDefaults}. Failures which only happen when running concurrently
+ * are reported as possible data races.
+ *
+ * This runs on the test runtime classpath, so it must not use anything other than the JDK and JUnit.
+ */
+public final class StressLauncher {
+    private StressLauncher() {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args the path to a file listing the test class names, the path to a file listing the trips
+     *             (one language tag and time zone ID per line), the number of threads, and the number of
+     *             milliseconds to keep running the tests for.
+     * @throws Exception if an error occurs.
+     */
+    public static void main(String[] args) throws Exception {
+        Class<?>[] testClasses = TestClasses.load(Paths.get(args[0]));
+        List<String> trips = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) {
+                trips.add(line);
+            }
+        }
+        int threadCount = Integer.parseInt(args[2]);
+        long durationMillis = Long.parseLong(args[3]);
+
+        checkAgentInstalled();
+
+        // Run each trip alone first, so that failures which happen anyway aren't mistaken for races.
+        Map<String, Set<String>> baselineFailures = new HashMap<>();
+        List<String> baselineFailureDescriptions = new ArrayList<>();
+        for (int i = 0; i < Math.min(threadCount, trips.size()); i++) {
+            String trip = trips.get(i);
+            Set<String> failingTests = new HashSet<>();
+            Thread thread = new Thread(() -> {
+                takeTrip(trip);
+                for (Failure failure : new JUnitCore().run(testClasses).getFailures()) {
+                    failingTests.add(failure.getTestHeader());
+                    baselineFailureDescriptions.add(describe(trip, failure));
+                }
+            });
+            thread.start();
+            thread.join();
+            baselineFailures.put(trip, failingTests);
+        }
+
+        CountDownLatch startSignal = new CountDownLatch(1);
+        AtomicLong runCount = new AtomicLong();
+        ConcurrentMap<String, String> races = new ConcurrentHashMap<>();
+        AtomicLong deadlineNanos = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            String trip = trips.get(i % trips.size());
+            Thread thread = new Thread(() -> {
+                takeTrip(trip);
+                try {
+                    startSignal.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                JUnitCore core = new JUnitCore();
+                while (System.nanoTime() - deadlineNanos.get() < 0) {
+                    Result result = core.run(testClasses);
+                    runCount.incrementAndGet();
+                    for (Failure failure : result.getFailures()) {
+                        if (!baselineFailures.get(trip).contains(failure.getTestHeader())) {
+                            races.putIfAbsent(trip + " " + failure.getTestHeader(), describe(trip, failure));
+                        }
+                    }
+                }
+            }, "stress-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        long startNanos = System.nanoTime();
+        deadlineNanos.set(startNanos + TimeUnit.MILLISECONDS.toNanos(durationMillis));
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long testMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        Properties properties = new Properties();
+        properties.setProperty("testMillis", String.valueOf(testMillis));
+        properties.setProperty("runCount", String.valueOf(runCount.get()));
+        List<String> raceDescriptions = new ArrayList<>(races.values());
+        properties.setProperty("failureCount", String.valueOf(raceDescriptions.size()));
+        for (int i = 0; i < raceDescriptions.size(); i++) {
+            properties.setProperty("failure." + i, raceDescriptions.get(i));
+        }
+        properties.setProperty("baselineFailureCount", String.valueOf(baselineFailureDescriptions.size()));
+        for (int i = 0; i < baselineFailureDescriptions.size(); i++) {
+            properties.setProperty("baselineFailure." + i, baselineFailureDescriptions.get(i));
+        }
+
+        try (OutputStream stream = Files.newOutputStream(Paths.get(System.getProperty(TripLauncher.RESULT_FILE_PROPERTY)))) {
+            properties.store(stream, null);
+        }
+
+        // JUnit may leave non-daemon threads lying around, so exit explicitly.
+        System.exit(0);
+    }
+
+    /**
+     * Checks that the defaults really are per-thread, as nothing would be tested if they were not.
+     */
+    private static void checkAgentInstalled() {
+        Locale probe = new Locale("und", "", "travelagent");
+        PerThreadDefaults.set(probe, TimeZone.getDefault());
+        try {
+            if (!Locale.getDefault().equals(probe)) {
+                throw new IllegalStateException("Per-thread defaults are not installed, see the agent output on standard error");
+            }
+        } finally {
+            PerThreadDefaults.clear();
+        }
+    }
+
+    /**
+     * Takes a trip for the current thread.
+     *
+     * @param trip the language tag and time zone ID, separated by a space.
+     */
+    private static void takeTrip(String trip) {
+        int space = trip.indexOf(' ');
+        PerThreadDefaults.set(Locale.forLanguageTag(trip.substring(0, space)),
+                TimeZone.getTimeZone(trip.substring(space + 1)));
+    }
+
+    private static String describe(String trip, Failure failure) {
+        int space = trip.indexOf(' ');
+        return trip.substring(0, space) + " (" + trip.substring(space + 1) + ") " +
+                failure.getTestHeader() + ": " + failure.getMessage();
+    }
+}
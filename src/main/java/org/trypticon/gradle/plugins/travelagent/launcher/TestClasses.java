@@ -0,0 +1,61 @@
+package org.trypticon.gradle.plugins.travelagent.launcher;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the test classes to run inside a forked JVM.
+ */
+final class TestClasses {
+    private TestClasses() {
+    }
+
+    /**
+     * Loads test classes listed in a file, one class name per line.
+     * Classes which JUnit could not run, such as abstract base classes and helpers which
+     * happened to be in the test classes directory, are skipped.
+     *
+     * @param file the file listing the class names.
+     * @return the test classes.
+     * @throws IOException if an error occurs reading the file.
+     * @throws ClassNotFoundException if a listed class could not be found.
+     */
+    static Class<?>[] load(Path file) throws IOException, ClassNotFoundException {
+        ClassLoader classLoader = TestClasses.class.getClassLoader();
+        List<Class<?>> classes = new ArrayList<>();
+        for (String name : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            Class<?> testClass = Class.forName(name, false, classLoader);
+            if (isRunnable(testClass)) {
+                classes.add(testClass);
+            }
+        }
+        return classes.toArray(new Class<?>[0]);
+    }
+
+    private static boolean isRunnable(Class<?> testClass) {
+        if (testClass.isInterface() || Modifier.isAbstract(testClass.getModifiers())) {
+            return false;
+        }
+        if (testClass.isAnnotationPresent(RunWith.class)) {
+            return true;
+        }
+        for (Method method : testClass.getMethods()) {
+            if (method.isAnnotationPresent(Test.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package org.trypticon.gradle.plugins.travelagent.launcher;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for a forked JVM which has already taken a trip, running JUnit tests and
+ * writing a summary of the results for the plugin to pick up.
+ *
+ * This runs on the test runtime classpath, so it must not use anything other than the JDK and JUnit.
+ */
+public final class TripLauncher {
+
+    /**
+     * System property giving the path to write the results to.
+     */
+    public static final String RESULT_FILE_PROPERTY = "travelagent.resultFile";
+
+    private TripLauncher() {
+    }
+
+    /**
+     * Runs the tests.
+     *
+     * @param args a single argument, the path to a file listing the test class names.
+     * @throws Exception if an error occurs.
+     */
+    public static void main(String[] args) throws Exception {
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        // Nothing has touched the locale data yet, so this is what the first locale-sensitive call in a test would pay.
+        long localeDataStartNanos = System.nanoTime();
+        NumberFormat.getInstance().format(1234.5);
+        DateFormat.getDateTimeInstance().format(new Date());
+        long localeDataMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - localeDataStartNanos);
+
+        Class<?>[] testClasses = TestClasses.load(Paths.get(args[0]));
+
+        long startNanos = System.nanoTime();
+        Result result = new JUnitCore().run(testClasses);
+        long testMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        Properties properties = new Properties();
+        properties.setProperty("startupMillis", String.valueOf(startupMillis));
+        properties.setProperty("localeDataMillis", String.valueOf(localeDataMillis));
+        properties.setProperty("testMillis", String.valueOf(testMillis));
+        properties.setProperty("runCount", String.valueOf(result.getRunCount()));
+        List<Failure> failures = result.getFailures();
+        properties.setProperty("failureCount", String.valueOf(failures.size()));
+        for (int i = 0; i < failures.size(); i++) {
+            Failure failure = failures.get(i);
+            properties.setProperty("failure." + i, failure.getTestHeader() + ": " + failure.getMessage());
+        }
+
+        try (OutputStream stream = Files.newOutputStream(Paths.get(System.getProperty(RESULT_FILE_PROPERTY)))) {
+            properties.store(stream, null);
+        }
+
+        // JUnit may leave non-daemon threads lying around, so exit explicitly.
+        System.exit(result.wasSuccessful() ? 0 : 1);
+    }
+}
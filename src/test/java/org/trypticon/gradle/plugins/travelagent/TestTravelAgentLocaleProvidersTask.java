@@ -0,0 +1,37 @@
+package org.trypticon.gradle.plugins.travelagent;
+
+import org.gradle.api.JavaVersion;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests for {@link TravelAgentLocaleProvidersTask}.
+ */
+public class TestTravelAgentLocaleProvidersTask {
+
+    @Test
+    public void testDefaultLocaleProviders_Java8() {
+        assertThat(TravelAgentLocaleProvidersTask.getDefaultLocaleProviders(JavaVersion.VERSION_1_8),
+                contains("JRE", "CLDR", "HOST"));
+    }
+
+    @Test
+    public void testDefaultLocaleProviders_Java11() {
+        assertThat(TravelAgentLocaleProvidersTask.getDefaultLocaleProviders(JavaVersion.VERSION_11),
+                contains("CLDR", "COMPAT", "HOST"));
+    }
+
+    @Test
+    public void testDefaultLocaleProviders_Java23() {
+        assertThat(TravelAgentLocaleProvidersTask.getDefaultLocaleProviders(JavaVersion.toVersion("23")),
+                contains("CLDR", "HOST"));
+    }
+
+    @Test
+    public void testDefaultLocaleProviders_UnknownToGradle() {
+        assertThat(TravelAgentLocaleProvidersTask.getDefaultLocaleProviders(JavaVersion.VERSION_HIGHER),
+                contains("CLDR", "HOST"));
+    }
+}
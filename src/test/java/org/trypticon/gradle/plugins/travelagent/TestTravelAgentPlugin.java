@@ -22,6 +22,7 @@ import java.util.stream.Collectors;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.text.MatchesPattern.matchesPattern;
+import static org.junit.Assume.assumeThat;
 
 /**
  * Tests for {@link TravelAgentPlugin}.
@@ -54,6 +55,20 @@ public class TestTravelAgentPlugin {
                 StandardCharsets.UTF_8);
     }
 
+    /**
+     * Convenience method to read a report written by one of the tasks.
+     *
+     * @param taskName the name of the task which wrote the report.
+     * @param fileName the name of the report file.
+     * @return the content of the report.
+     * @throws Exception if an error occurs.
+     */
+    private String readReport(String taskName, String fileName) throws Exception
+    {
+        Path filePath = projectDir.toPath().resolve("build/reports/travelAgent").resolve(taskName).resolve(fileName);
+        return new String(Files.readAllBytes(filePath), StandardCharsets.UTF_8);
+    }
+
     /**
      * Gets a classpath string suitable for inserting into a Gradle build.
      *
@@ -66,6 +81,17 @@ public class TestTravelAgentPlugin {
                 .collect(Collectors.joining(", "));
     }
 
+    /**
+     * Gets the major version of Java running the tests, which also runs the builds and their forks.
+     *
+     * @return the major version, e.g. {@code 8} or {@code 17}.
+     */
+    private static int getJavaMajorVersion()
+    {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
     /**
      * Creates a runner to run Gradle.
      *
@@ -141,6 +167,35 @@ public class TestTravelAgentPlugin {
                 "}");
     }
 
+    /**
+     * Writes some sample code into the project which writes locale-dependent output without failing.
+     *
+     * @throws Exception if an error occurs.
+     */
+    private void writeSampleOutputCode() throws Exception {
+        write("src/test/java/acme/TestReport.java",
+                "package acme;",
+                "",
+                "import org.junit.Test;",
+                "",
+                "import java.nio.charset.StandardCharsets;",
+                "import java.nio.file.Files;",
+                "import java.nio.file.Path;",
+                "import java.nio.file.Paths;",
+                "import java.util.Collections;",
+                "",
+                "public class TestReport {",
+                "    @Test",
+                "    public void testWriteReport() throws Exception {",
+                "        String total = String.format(\"Total: %,.2f\", 1234.5);", // Common bug
+                "        System.out.println(total);",
+                "        Path output = Paths.get(\"build/test-output\");",
+                "        Files.createDirectories(output);",
+                "        Files.write(output.resolve(\"report.txt\"), Collections.singletonList(total), StandardCharsets.UTF_8);",
+                "    }",
+                "}");
+    }
+
     @Test
     public void testDisabledGlobally() throws Exception {
         writeSampleCode();
@@ -312,4 +367,653 @@ public class TestTravelAgentPlugin {
 
         assertThat(result.task(":test").getOutcome(), is(TaskOutcome.FAILED));
     }
+
+    @Test
+    public void testLogging_ScriptAndExtensions() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"zh\", \"TW\", \"Asia/Taipei\").withScript(\"Hant\").withExtensions(\"u-ca-roc\"))",
+                "}");
+
+        BuildResult result = runner.withArguments("test", "--stacktrace").build();
+
+        assertThat(result.getOutput(), containsString("    Locale:     zh-Hant-TW-u-ca-roc\n"));
+    }
+
+    @Test
+    public void testExplore_Failing() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"tr\", \"TR\", \"Asia/Istanbul\"))",
+                "}");
+
+        BuildResult result = runner.withArguments("exploreTrips", "-Ptravelagent.budget=PT15S", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":exploreTrips").getOutcome(), is(TaskOutcome.FAILED));
+        String report = readReport("exploreTrips", "explore.txt");
+        assertThat(report, containsString("tr-TR-u-"));
+        assertThat(report, containsString("acme.TestSomething"));
+    }
+
+    @Test
+    public void testExplore_IgnoreFailures() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"tr\", \"TR\", \"Asia/Istanbul\"))",
+                "}",
+                "tasks.named<Test>(\"test\") {",
+                "    minHeapSize = \"16m\"",
+                "    maxHeapSize = \"256m\"",
+                "    systemProperty(\"acme.greeting\", \"hello\")",
+                "}",
+                "tasks.named<TravelAgentExploreTask>(\"exploreTrips\") {",
+                "    budget.set(java.time.Duration.ofSeconds(15))",
+                "    ignoreFailures.set(true)",
+                "}");
+
+        BuildResult result = runner.withArguments("exploreTrips", "--stacktrace").build();
+
+        assertThat(result.task(":exploreTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("failing trips."));
+    }
+
+    @Test
+    public void testExplore_KnownFailing() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    knownFailing { trip -> trip.language == \"tr\" }",
+                "}",
+                "tasks.named<TravelAgentExploreTask>(\"exploreTrips\") {",
+                "    budget.set(java.time.Duration.ofSeconds(15))",
+                "    maxParallelForks.set(2)",
+                "}");
+
+        BuildResult result = runner.withArguments("exploreTrips", "--stacktrace").build();
+
+        assertThat(result.task(":exploreTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString(", of which 0 failed."));
+    }
+
+    @Test
+    public void testExplore_NoAcceptableTrips() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    knownFailing { true }",
+                "}");
+
+        BuildResult result = runner.withArguments("exploreTrips", "--stacktrace").build();
+
+        assertThat(result.task(":exploreTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("Explored 0 trips, of which 0 failed."));
+    }
+
+    @Test
+    public void testExplore_Exhausted() throws Exception {
+        writeSampleCode();
+
+        // Only one trip can be explored, so the task finishes long before the default budget runs out.
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"zh\", \"TW\", \"Asia/Taipei\"))",
+                "    knownFailing { trip -> trip.script != \"\" || trip.extensions !in setOf(\"\", \"u-ca-japanese\") }",
+                "}");
+
+        BuildResult result = runner.withArguments("exploreTrips", "--stacktrace").build();
+
+        assertThat(result.task(":exploreTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("Explored 1 trips, of which 0 failed."));
+    }
+
+    @Test
+    public void testStress() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    knownFailing { trip -> trip.language == \"tr\" }",
+                "}",
+                "tasks.named<TravelAgentStressTask>(\"stressTrips\") {",
+                "    threadCounts.set(listOf(1, 4))",
+                "    duration.set(java.time.Duration.ofSeconds(3))",
+                "}");
+
+        BuildResult result = runner.withArguments("stressTrips", "--stacktrace").build();
+
+        assertThat(result.task(":stressTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("4 threads: "));
+        String report = readReport("stressTrips", "stress.txt");
+        assertThat(report, matchesPattern("(?s).*\\n4 +[1-9]\\d* +\\d+\\.\\d +0\\n.*"));
+        assertThat(report, not(containsString("Possible races with")));
+    }
+
+    @Test
+    public void testStress_Races() throws Exception {
+        write("src/test/java/acme/TestSharedDefaults.java",
+                "package acme;",
+                "",
+                "import org.junit.Test;",
+                "",
+                "import java.util.Locale;",
+                "import java.util.TimeZone;",
+                "",
+                "import static org.hamcrest.Matchers.*;",
+                "import static org.junit.Assert.assertThat;",
+                "",
+                "public class TestSharedDefaults {",
+                "    private static volatile String lastDefaults;", // Common bug
+                "",
+                "    @Test",
+                "    public void testDefaults() throws Exception {",
+                "        String defaults = Locale.getDefault().toLanguageTag() + \" \" + TimeZone.getDefault().getID();",
+                "        lastDefaults = defaults;",
+                "        Thread.sleep(10);",
+                "        assertThat(lastDefaults, is(defaults));",
+                "    }",
+                "}");
+
+        // An old ASM on the test classpath must not get in the way of the agent.
+        GradleRunner runner = createRunner(
+                "dependencies {",
+                "    \"testImplementation\"(\"org.ow2.asm:asm:5.0.3\")",
+                "}",
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"en\", \"AU\", \"Australia/Sydney\"))",
+                "    availableTrips.add(Trip(\"de\", \"DE\", \"Europe/Berlin\"))",
+                "}",
+                "tasks.named<TravelAgentStressTask>(\"stressTrips\") {",
+                "    threadCounts.set(listOf(2))",
+                "    duration.set(java.time.Duration.ofSeconds(3))",
+                "}");
+
+        BuildResult result = runner.withArguments("stressTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":stressTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("possible races and 0 other failures."));
+        String report = readReport("stressTrips", "stress.txt");
+        assertThat(report, containsString("Possible races with 2 threads:"));
+        assertThat(report, containsString("testDefaults(acme.TestSharedDefaults)"));
+    }
+
+    @Test
+    public void testStress_NoAcceptableTrips() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    knownFailing { true }",
+                "}");
+
+        BuildResult result = runner.withArguments("stressTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":stressTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("No acceptable trips to take"));
+    }
+
+    @Test
+    public void testStress_ForkExited() throws Exception {
+        write("src/test/java/acme/TestExit.java",
+                "package acme;",
+                "",
+                "import org.junit.Test;",
+                "",
+                "public class TestExit {",
+                "    @Test",
+                "    public void testExit() {",
+                "        System.exit(3);",
+                "    }",
+                "}");
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentStressTask>(\"stressTrips\") {",
+                "    threadCounts.set(listOf(2))",
+                "    duration.set(java.time.Duration.ofSeconds(3))",
+                "}");
+
+        BuildResult result = runner.withArguments("stressTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":stressTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("Stress run with 2 threads failed: Forked JVM exited with code 3"));
+    }
+
+    @Test
+    public void testStress_FailingWithoutConcurrency() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"tr\", \"TR\", \"Asia/Istanbul\"))",
+                "}",
+                "tasks.named<TravelAgentStressTask>(\"stressTrips\") {",
+                "    threadCounts.set(listOf(2))",
+                "    duration.set(java.time.Duration.ofSeconds(3))",
+                "    ignoreFailures.set(true)",
+                "}");
+
+        BuildResult result = runner.withArguments("stressTrips", "--stacktrace").build();
+
+        assertThat(result.task(":stressTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), matchesPattern("(?s).*Found \\d+ possible races and [1-9]\\d* other failures\\..*"));
+        String report = readReport("stressTrips", "stress.txt");
+        assertThat(report, containsString("tr-TR (Asia/Istanbul) testManipulate(acme.TestSomething)"));
+    }
+
+    @Test
+    public void testForceLocaleProviders() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner();
+
+        BuildResult result = runner.withArguments("test",
+                "-Ptravelagent.language=en",
+                "-Ptravelagent.country=US",
+                "-Ptravelagent.localeproviders=COMPAT",
+                "--stacktrace").build();
+
+        assertThat(result.getOutput(), containsString("    Providers:  COMPAT\n"));
+        assertThat(result.getOutput(), containsString("-Ptravelagent.timezone=America/Los_Angeles -Ptravelagent.localeproviders=COMPAT"));
+    }
+
+    @Test
+    public void testForceLocaleProviders_NotAvailable() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableLocaleProviders.set(listOf(\"CLDR\"))",
+                "}");
+
+        BuildResult result = runner.withArguments("test",
+                "-Ptravelagent.language=en",
+                "-Ptravelagent.localeproviders=HOST",
+                "--stacktrace").build();
+
+        assertThat(result.getOutput(), containsString("    Providers:  HOST\n"));
+    }
+
+    @Test
+    public void testAvailableLocaleProvidersPerTask() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "tasks.named<Test>(\"test\") {",
+                "    configure<TravelAgentTaskExtension> {",
+                "        availableLocaleProviders.add(\"CLDR\")",
+                "    }",
+                "}");
+
+        BuildResult result = runner.withArguments("test", "-Ptravelagent.language=en", "--stacktrace").build();
+
+        assertThat(result.getOutput(), containsString("    Providers:  CLDR\n"));
+    }
+
+    @Test
+    public void testCompareLocaleProviders() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"en\", \"AU\", \"Australia/Sydney\"))",
+                "}",
+                "tasks.named<TravelAgentLocaleProvidersTask>(\"compareLocaleProviders\") {",
+                "    localeProviders.set(listOf(\"CLDR\", \"COMPAT\"))",
+                "    repetitions.set(1)",
+                "}");
+
+        BuildResult result = runner.withArguments("compareLocaleProviders", "--stacktrace").build();
+
+        assertThat(result.task(":compareLocaleProviders").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("CLDR: median "));
+        assertThat(result.getOutput(), containsString("COMPAT: median "));
+        assertThat(result.getOutput(), containsString(" ms loading locale data, "));
+        String report = readReport("compareLocaleProviders", "localeProviders.txt");
+        assertThat(report, containsString("en-AU (Australia/Sydney)"));
+    }
+
+    @Test
+    public void testCompareLocaleProviders_Failing() throws Exception {
+        writeSampleCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"tr\", \"TR\", \"Asia/Istanbul\"))",
+                "}",
+                "tasks.named<TravelAgentLocaleProvidersTask>(\"compareLocaleProviders\") {",
+                "    localeProviders.set(listOf(\"CLDR\"))",
+                "    repetitions.set(1)",
+                "}");
+
+        BuildResult result = runner.withArguments("compareLocaleProviders", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":compareLocaleProviders").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("Found 1 failing combinations of trip and provider."));
+    }
+
+    @Test
+    public void testCompareLocaleProviders_ForkExited() throws Exception {
+        write("src/test/java/acme/TestExit.java",
+                "package acme;",
+                "",
+                "import org.junit.Test;",
+                "",
+                "public class TestExit {",
+                "    @Test",
+                "    public void testExit() {",
+                "        System.exit(3);",
+                "    }",
+                "}");
+
+        // Left with the default providers for the version of Java the tests run on.
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"en\", \"AU\", \"Australia/Sydney\"))",
+                "}",
+                "tasks.named<TravelAgentLocaleProvidersTask>(\"compareLocaleProviders\") {",
+                "    repetitions.set(1)",
+                "}");
+
+        BuildResult result = runner.withArguments("compareLocaleProviders", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":compareLocaleProviders").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("CLDR: median - ms startup, - ms loading locale data, - ms tests, 1 failed trips"));
+        assertThat(result.getOutput(), containsString(getJavaMajorVersion() < 9 ? "JRE: median " : "HOST: median "));
+        String report = readReport("compareLocaleProviders", "localeProviders.txt");
+        assertThat(report, containsString("Forked JVM exited with code 3"));
+    }
+
+    @Test
+    public void testCompareLocaleProviders_Inconsistent() throws Exception {
+        // Java 8 doesn't know COMPAT and ignores it, and Java 23 removed it.
+        assumeThat(getJavaMajorVersion(), both(greaterThanOrEqualTo(9)).and(lessThan(23)));
+
+        write("src/test/java/acme/TestGrouping.java",
+                "package acme;",
+                "",
+                "import org.junit.Test;",
+                "",
+                "import static org.hamcrest.Matchers.*;",
+                "import static org.junit.Assert.assertThat;",
+                "",
+                "public class TestGrouping {",
+                "    @Test",
+                "    public void testGrouping() {",
+                "        assertThat(String.format(\"%,d\", 1234), is(\"1'234\"));", // Only true for the COMPAT data
+                "    }",
+                "}");
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.add(Trip(\"de\", \"CH\", \"Europe/Zurich\"))",
+                "    prefer(\"de\", \"CH\", \"Europe/Zurich\")",
+                "}",
+                "tasks.named<TravelAgentLocaleProvidersTask>(\"compareLocaleProviders\") {",
+                "    localeProviders.set(listOf(\"CLDR\", \"COMPAT\"))",
+                "    repetitions.set(1)",
+                "    ignoreFailures.set(true)",
+                "}");
+
+        BuildResult result = runner.withArguments("compareLocaleProviders", "--stacktrace").build();
+
+        assertThat(result.task(":compareLocaleProviders").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("Found 1 failing combinations of trip and provider. " +
+                "1 trips pass with some providers but not others."));
+        String report = readReport("compareLocaleProviders", "localeProviders.txt");
+        assertThat(report, containsString("Locale data (ms)"));
+        assertThat(report, containsString("    de-CH (Europe/Zurich): fails with CLDR, passes with COMPAT"));
+    }
+
+    @Test
+    public void testDiff() throws Exception {
+        writeSampleOutputCode();
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    targetTrip.set(Trip(\"de\", \"DE\", \"Europe/Berlin\"))",
+                "    outputDirectories.from(\"build/test-output\")",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("Found 2 locale-dependent outputs."));
+        String report = readReport("diffTrips", "diff.txt");
+        assertThat(report, containsString("Target:   de-DE (Europe/Berlin)"));
+        assertThat(report, containsString("Standard output: 1 of 1 chunks differ"));
+        assertThat(report, containsString("build/test-output/report.txt: 1 of 1 chunks differ"));
+        assertThat(report, containsString("    target:   \"Total: 1.234,50\\n\""));
+    }
+
+    @Test
+    public void testDiff_SameTrip() throws Exception {
+        writeSampleOutputCode();
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    targetTrip.set(Trip(\"en\", \"US\", \"America/Los_Angeles\"))",
+                "    outputDirectories.from(\"build/test-output\")",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").build();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("of which 0 differ."));
+    }
+
+    @Test
+    public void testDiff_FailingTests() throws Exception {
+        writeSampleCode();
+        writeSampleOutputCode();
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    baselineTrip.set(Trip(\"tr\", \"TR\", \"Europe/Istanbul\"))",
+                "    targetTrip.set(Trip(\"tr\", \"TR\", \"Europe/Istanbul\"))",
+                "    outputDirectories.from(\"build/test-output\")",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").build();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("of which 0 differ."));
+        String report = readReport("diffTrips", "diff.txt");
+        assertThat(report, matchesPattern("(?s)Baseline: .*\\n    Failed: testManipulate\\(acme.TestSomething\\): .*" +
+                "\\nTarget: .*\\n    Failed: testManipulate\\(acme.TestSomething\\): .*"));
+    }
+
+    @Test
+    public void testDiff_LengthChanged() throws Exception {
+        writeSampleOutputCode();
+
+        // French groups digits with a non-breaking space, which takes more than one byte in UTF-8.
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    targetTrip.set(Trip(\"fr\", \"FR\", \"Europe/Paris\"))",
+                "    outputDirectories.from(\"build/test-output\")",
+                "    compareStandardOutput.set(false)",
+                "    chunkSize.set(4)",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("Found 1 locale-dependent outputs."));
+        String report = readReport("diffTrips", "diff.txt");
+        assertThat(report, containsString("build/test-output/report.txt: first difference at byte 8, " +
+                "after which the outputs are out of step"));
+        assertThat(report, containsString("    baseline SHA-256: "));
+        assertThat(report, not(containsString("chunks differ")));
+    }
+
+    @Test
+    public void testDiff_WrittenByOneTrip() throws Exception {
+        // Java 8 ignores the extensions, so both trips use the Gregorian calendar.
+        assumeThat(getJavaMajorVersion(), greaterThanOrEqualTo(9));
+
+        write("src/test/java/acme/TestCalendarReport.java",
+                "package acme;",
+                "",
+                "import org.junit.Test;",
+                "",
+                "import java.nio.charset.StandardCharsets;",
+                "import java.nio.file.Files;",
+                "import java.nio.file.Path;",
+                "import java.nio.file.Paths;",
+                "import java.util.Calendar;",
+                "import java.util.Collections;",
+                "import java.util.Locale;",
+                "",
+                "public class TestCalendarReport {",
+                "    @Test",
+                "    public void testWriteReport() throws Exception {",
+                "        Path output = Paths.get(\"build/test-output\");",
+                "        Files.createDirectories(output);",
+                "        Files.write(output.resolve(Calendar.getInstance().getCalendarType() + \".txt\"),", // Common bug
+                "                Collections.singletonList(\"calendar\"), StandardCharsets.UTF_8);",
+                "        Files.write(output.resolve(\"locale.txt\"), Locale.getDefault().toLanguageTag().getBytes(StandardCharsets.UTF_8));",
+                "    }",
+                "}");
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    targetTrip.set(Trip(\"en\", \"US\", \"America/Los_Angeles\").withExtensions(\"u-ca-japanese\"))",
+                "    outputDirectories.from(\"build/test-output\")",
+                "    ignoreFailures.set(true)",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").build();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.SUCCESS));
+        assertThat(result.getOutput(), containsString("Found 3 locale-dependent outputs."));
+        String report = readReport("diffTrips", "diff.txt");
+        assertThat(report, containsString("build/test-output/gregory.txt: only written by the baseline trip"));
+        assertThat(report, containsString("build/test-output/japanese.txt: only written by the target trip"));
+        assertThat(report, containsString("build/test-output/locale.txt: first difference at byte 5, " +
+                "after which the outputs are out of step"));
+    }
+
+    @Test
+    public void testDiff_ExternalOutputDirectory() throws Exception {
+        writeSampleOutputCode();
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    outputDirectories.from(\"test-output\")",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("is outside the build directory."));
+    }
+
+    @Test
+    public void testDiff_OutputDirectoryContainingTaskFiles() throws Exception {
+        writeSampleOutputCode();
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    targetTrip.set(Trip(\"de\", \"DE\", \"Europe/Berlin\"))",
+                "    outputDirectories.from(\"build/tmp\")",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("which would lose the task's own files."));
+    }
+
+    @Test
+    public void testDiff_OnlyBaselineAcceptable() throws Exception {
+        writeSampleOutputCode();
+
+        GradleRunner runner = createRunner(
+                "configure<TravelAgentExtension> {",
+                "    availableTrips.empty()",
+                "    availableTrips.add(Trip(\"en\", \"US\", \"America/Los_Angeles\"))",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("No acceptable trips to take other than the baseline trip"));
+    }
+
+    @Test
+    public void testDiff_ZeroChunkSize() throws Exception {
+        writeSampleOutputCode();
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    targetTrip.set(Trip(\"de\", \"DE\", \"Europe/Berlin\"))",
+                "    chunkSize.set(0)",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").buildAndFail();
+
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("Chunk size must be positive, but was 0"));
+    }
+
+    @Test
+    public void testDiff_GoldenFilesRestored() throws Exception {
+        write("test-output/expected.txt", "Total: 1,234.50");
+        write("src/test/java/acme/TestGolden.java",
+                "package acme;",
+                "",
+                "import org.junit.Test;",
+                "",
+                "import java.nio.charset.StandardCharsets;",
+                "import java.nio.file.Files;",
+                "import java.nio.file.Path;",
+                "import java.nio.file.Paths;",
+                "import java.util.Collections;",
+                "",
+                "public class TestGolden {",
+                "    @Test",
+                "    public void testAgainstGolden() throws Exception {",
+                "        Path output = Paths.get(\"test-output\");",
+                "        Files.delete(output.resolve(\"expected.txt\"));",
+                "        Files.write(output.resolve(\"actual.txt\"),",
+                "                Collections.singletonList(String.format(\"Total: %,.2f\", 1234.5)), StandardCharsets.UTF_8);", // Common bug
+                "    }",
+                "}");
+
+        GradleRunner runner = createRunner(
+                "tasks.named<TravelAgentDiffTask>(\"diffTrips\") {",
+                "    targetTrip.set(Trip(\"de\", \"DE\", \"Europe/Berlin\"))",
+                "    outputDirectories.from(\"test-output\")",
+                "    allowExternalOutputDirectories.set(true)",
+                "}");
+
+        BuildResult result = runner.withArguments("diffTrips", "--stacktrace").buildAndFail();
+
+        // Both runs found the golden file, and it was put back after both of them deleted it.
+        assertThat(result.task(":diffTrips").getOutcome(), is(TaskOutcome.FAILED));
+        assertThat(result.getOutput(), containsString("Found 1 locale-dependent outputs."));
+        String report = readReport("diffTrips", "diff.txt");
+        assertThat(report, containsString("test-output/actual.txt: 1 of 1 chunks differ"));
+        assertThat(report, not(containsString("Failed: ")));
+        Path outputDirectory = projectDir.toPath().resolve("test-output");
+        assertThat(new String(Files.readAllBytes(outputDirectory.resolve("expected.txt")), StandardCharsets.UTF_8),
+                is("Total: 1,234.50\n"));
+        assertThat(Files.exists(outputDirectory.resolve("actual.txt")), is(false));
+    }
 }